@@ -71,6 +71,46 @@ public abstract class AbstractConfig implements Configuration {
      */
     protected final static String EXT_STOP = "ext_stopwords";
 
+    /**
+     * 配置文件中文件系统扩展字典库标识.
+     */
+    protected final static String EXT_DICT_FILES = "ext_dict_files";
+
+    /**
+     * 配置文件中文件系统停用词字典库标识.
+     */
+    protected final static String EXT_STOP_FILES = "ext_stopword_files";
+
+    /**
+     * 配置文件中词典引擎标识.
+     */
+    protected final static String DICT_ENGINE = "dict_engine";
+
+    /**
+     * 配置文件中词典快照标识.
+     */
+    protected final static String DICT_SNAPSHOT = "dict_snapshot";
+
+    /**
+     * 配置文件中歧义路径最大长度标识.
+     */
+    protected final static String MAX_CROSS_PATH_LENGTH = "max_cross_path_length";
+
+    /**
+     * 配置文件中最大候选方案数标识.
+     */
+    protected final static String MAX_CANDIDATE_PATHS = "max_candidate_paths";
+
+    /**
+     * 配置文件中分词时间预算标识.
+     */
+    protected final static String TIME_BUDGET_MILLIS = "time_budget_millis";
+
+    /**
+     * 配置文件中候选词元复用标识.
+     */
+    protected final static String LEXEME_POOL = "lexeme_pool";
+
     /**
      * 是否采用智能分词.
      */
@@ -168,4 +208,88 @@ public abstract class AbstractConfig implements Configuration {
         return extStopWordDictFiles;
     }
 
+    @Override
+    public List<String> getExtDictionaryFiles() {
+        return getPaths(EXT_DICT_FILES);
+    }
+
+    @Override
+    public List<String> getExtStopWordDictionaryFiles() {
+        return getPaths(EXT_STOP_FILES);
+    }
+
+    @Override
+    public String getDictEngine() {
+        String engine = props.getProperty(DICT_ENGINE);
+        if (engine == null || "".equals(engine.trim())) {
+            return DICT_ENGINE_TREE;
+        }
+        return engine.trim();
+    }
+
+    @Override
+    public String getDictSnapshot() {
+        String snapshot = props.getProperty(DICT_SNAPSHOT);
+        if (snapshot == null || "".equals(snapshot.trim())) {
+            return null;
+        }
+        return snapshot.trim();
+    }
+
+    @Override
+    public int getMaxCrossPathLength() {
+        return (int) getLimit(MAX_CROSS_PATH_LENGTH);
+    }
+
+    @Override
+    public int getMaxCandidatePaths() {
+        return (int) getLimit(MAX_CANDIDATE_PATHS);
+    }
+
+    @Override
+    public long getTimeBudgetMillis() {
+        return getLimit(TIME_BUDGET_MILLIS);
+    }
+
+    @Override
+    public boolean useLexemePool() {
+        String pool = props.getProperty(LEXEME_POOL);
+        return pool != null && Boolean.parseBoolean(pool.trim());
+    }
+
+    /**
+     * 读取非负的限制值，未配置或不合法时返回0(不限制).
+     */
+    private long getLimit(String key) {
+        String limit = props.getProperty(key);
+        if (limit == null || "".equals(limit.trim())) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(limit.trim()));
+        } catch (NumberFormatException e) {
+            LOGGER.error("配置项 {} 不是合法的数字: {}", key, limit.trim());
+            return 0;
+        }
+    }
+
+    /**
+     * 读取使用;分割的多个路径.
+     */
+    private List<String> getPaths(String key) {
+
+        List<String> paths = new ArrayList<>(2);
+        String cfg = props.getProperty(key);
+
+        if (cfg != null) {
+            for (String path : cfg.split(";")) {
+                if (!"".equals(path.trim())) {
+                    paths.add(path.trim());
+                }
+            }
+        }
+
+        return paths;
+    }
+
 }
@@ -36,6 +36,21 @@ import java.util.List;
  */
 public interface Configuration {
 
+    /**
+     * 词典引擎: 对象树.
+     */
+    public static final String DICT_ENGINE_TREE = "tree";
+
+    /**
+     * 词典引擎: 双数组.
+     */
+    public static final String DICT_ENGINE_DOUBLE_ARRAY = "double-array";
+
+    /**
+     * 词典引擎: 内存映射的双数组快照，同一主机上的多个JVM共享一份物理内存.
+     */
+    public static final String DICT_ENGINE_MAPPED = "mapped";
+
     /**
      * 返回当前是否采用智能分词.
      * @return 如果智能分词则返回true, 否则返回false.
@@ -75,4 +90,62 @@ public interface Configuration {
      * @return List<String> 相对类加载器的路径
      */
     public List<String> getExtStopWordDictionarys();
+
+    /**
+     * 获取文件系统中的扩展字典路径，文件变化时自动重新加载
+     *
+     * @return List<String> 文件路径
+     */
+    public List<String> getExtDictionaryFiles();
+
+    /**
+     * 获取文件系统中的扩展停止词典路径，文件变化时自动重新加载
+     *
+     * @return List<String> 文件路径
+     */
+    public List<String> getExtStopWordDictionaryFiles();
+
+    /**
+     * 获取词典引擎
+     *
+     * @return String {@link #DICT_ENGINE_TREE}、{@link #DICT_ENGINE_DOUBLE_ARRAY}或{@link #DICT_ENGINE_MAPPED}
+     */
+    public String getDictEngine();
+
+    /**
+     * 获取预编译的词典快照路径，未配置时返回null.
+     * 快照仅在双数组和内存映射引擎下使用，缺失或与词典文件不一致时加载文本词典.
+     *
+     * @return String 文件路径或相对类加载器的路径，内存映射引擎只支持文件路径
+     */
+    public String getDictSnapshot();
+
+    /**
+     * 获取智能分词时歧义路径的最大长度，超过时不做歧义裁决，采用正向贪心的切分结果
+     *
+     * @return int 字符数，0表示不限制
+     */
+    public int getMaxCrossPathLength();
+
+    /**
+     * 获取智能分词时歧义裁决的最大候选方案数，超过时采用正向贪心的切分结果
+     *
+     * @return int 候选方案数，0表示不限制
+     */
+    public int getMaxCandidatePaths();
+
+    /**
+     * 获取每段文本的分词时间预算，超出时只输出已完成的分词结果
+     *
+     * @return long 毫秒数，0表示不限制
+     */
+    public long getTimeBudgetMillis();
+
+    /**
+     * 返回是否复用候选词元. 开启后候选词元取自分词上下文的对象池，
+     * 每段缓冲区分析完后回收，只有输出的词元新建对象.
+     *
+     * @return boolean 默认false
+     */
+    public boolean useLexemePool();
 }
@@ -25,11 +25,14 @@ package com.geohey.ikanalyzer.core;
  */
 
 import com.geohey.ikanalyzer.cfg.Configuration;
+import com.geohey.ikanalyzer.dic.DictVersion;
 import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.dic.IDictionary;
 import com.geohey.ikanalyzer.util.CharacterUtils;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.*;
 
 /**
@@ -42,12 +45,12 @@ public class AnalyzeContext {
     /**
      * 默认缓冲区大小
      */
-    private static final int BUFF_SIZE = 4096;
+    static final int BUFF_SIZE = 4096;
 
     /**
      * 缓冲区耗尽的临界值.
      */
-    private static final int BUFF_EXHAUST_CRITICAL = 100;
+    static final int BUFF_EXHAUST_CRITICAL = 100;
 
     /**
      * 字符串读取缓冲.
@@ -57,7 +60,7 @@ public class AnalyzeContext {
     /**
      * 字符类型数组.
      */
-    private int[] charTypes;
+    private byte[] charTypes;
 
     /**
      * 记录Reader内已分析的字符串总长度.
@@ -65,6 +68,16 @@ public class AnalyzeContext {
      */
     private int buffOffset;
 
+    /**
+     * 不经过Reader分词时，已从文本复制到segmentBuff的字符总数.
+     */
+    private int textRead;
+
+    /**
+     * 文本从缓冲区切换点开始读取，首字符已在上一段缓冲区中规范化过一次.
+     */
+    private boolean resumed;
+
     /**
      * 当前缓冲区位置指针.
      */
@@ -76,9 +89,19 @@ public class AnalyzeContext {
     private int available;
 
     /**
-     * 子分词器锁. 该集合非空，说明有子分词器在占用segmentBuff.
+     * 子分词器锁. 每个子分词器占一位，非0说明有子分词器在占用segmentBuff.
      */
-    private Set<String> buffLocker;
+    private long buffLocks;
+
+    /**
+     * 已登记的子分词器名称，下标即在buffLocks中的位.
+     */
+    private String[] lockNames;
+
+    /**
+     * 已登记的子分词器个数.
+     */
+    private int lockCount;
 
 
     /**
@@ -87,14 +110,29 @@ public class AnalyzeContext {
     private QuickSortSet orgLexemes;
 
     /**
-     * LexemePath位置索引表
+     * LexemePath位置索引表，以路径起始位置为下标
      */
-    private Map<Integer, LexemePath> pathMap;
+    private LexemePath[] pathMap;
+
+    /**
+     * pathMap中已使用的最大下标+1.
+     */
+    private int pathLimit;
 
     /**
      * 最终分词结果.
      */
-    private LinkedList<Lexeme> results;
+    private ArrayDeque<Lexeme> results;
+
+    /**
+     * 候选词元池，未开启词元复用时为null.
+     */
+    private Lexeme[] lexemePool;
+
+    /**
+     * 当前缓冲区已从词元池中取出的个数.
+     */
+    private int pooledLexemes;
 
 
     /**
@@ -102,15 +140,42 @@ public class AnalyzeContext {
      */
     private Configuration cfg;
 
+    /**
+     * 是否智能分词，默认取自配置，由分词器按实例设置.
+     */
+    private boolean useSmart;
+
+    /**
+     * 词典实例，每次填充缓冲区时取其当前版本.
+     */
+    private final IDictionary dict;
+
+    /**
+     * 当前缓冲区使用的词典版本，每次填充缓冲区时更新.
+     */
+    private DictVersion dictionary;
+
     public AnalyzeContext(Configuration cfg) {
+        this(cfg, Dictionary.getSingleton());
+    }
+
+    public AnalyzeContext(Configuration cfg, IDictionary dict) {
         this.cfg = cfg;
+        this.useSmart = cfg.useSmart();
         this.segmentBuff = new char[BUFF_SIZE];
-        this.charTypes = new int[BUFF_SIZE];
+        this.charTypes = new byte[BUFF_SIZE];
 
-        this.buffLocker = new HashSet<>();
+        this.lockNames = new String[4];
         this.orgLexemes = new QuickSortSet();
-        this.pathMap = new HashMap<>();
-        this.results = new LinkedList<Lexeme>();
+        this.lexemePool = cfg.useLexemePool() ? new Lexeme[64] : null;
+        this.pathMap = new LexemePath[BUFF_SIZE];
+        this.results = new ArrayDeque<>();
+        this.dict = dict;
+        this.dictionary = dict.snapshot();
+    }
+
+    void setUseSmart(boolean useSmart) {
+        this.useSmart = useSmart;
     }
 
     int getCursor() {
@@ -133,6 +198,10 @@ public class AnalyzeContext {
         return this.buffOffset;
     }
 
+    DictVersion getDictionary() {
+        return this.dictionary;
+    }
+
     /**
      * 根据context上下文情况，填充segmentBuff.
      * @param reader
@@ -142,15 +211,17 @@ public class AnalyzeContext {
     public int fillBuffer(Reader reader) throws IOException {
 
         int readCount = 0;
+        int offset = 0;
 
         if (buffOffset == 0) {
             // 首次读取reader
             readCount = reader.read(segmentBuff);
         } else {
-            int offset = this.available - this.cursor;
-            //  最近一次读取的 > 最近一次处理的，将未处理的字符串拷贝到segmentBuff头部.
+            offset = this.available - this.cursor;
+            //  最近一次读取的 > 最近一次处理的，将未处理的字符串及其类型拷贝到segmentBuff头部.
             if (offset > 0) {
                 System.arraycopy(segmentBuff, cursor, segmentBuff, 0, offset);
+                System.arraycopy(charTypes, cursor, charTypes, 0, offset);
                 readCount = offset;
             }
 
@@ -158,10 +229,82 @@ public class AnalyzeContext {
             readCount += reader.read(segmentBuff, offset, BUFF_SIZE - offset);
         }
 
+        return this.filled(offset, readCount);
+    }
+
+    /**
+     * 直接从文本的[begin, end)区间填充segmentBuff，不经过Reader.
+     * 文本短于缓冲区时一次复制完成；否则与Reader相同，每次复制一个缓冲区.
+     * @param text 文本
+     * @param begin 文本的起始位置
+     * @param end 文本的结束位置
+     * @return 缓冲区中可处理的字符数，0表示文本已处理完
+     */
+    public int fillBuffer(CharSequence text, int begin, int end) {
+        int offset = 0;
+        if (this.textRead > 0) {
+            offset = this.available - this.cursor;
+            // 将未处理的字符串及其类型拷贝到segmentBuff头部
+            if (offset > 0) {
+                System.arraycopy(segmentBuff, cursor, segmentBuff, 0, offset);
+                System.arraycopy(charTypes, cursor, charTypes, 0, offset);
+            }
+        }
+
+        int position = begin + this.textRead;
+        int count = Math.min(BUFF_SIZE - offset, end - position);
+        getChars(text, position, position + count, segmentBuff, offset);
+        if (this.resumed && this.textRead == 0 && count > 0) {
+            // 与切换缓冲区时保留的首字符一致，initCursor会再规范化一次
+            segmentBuff[0] = CharacterUtils.regularize(segmentBuff[0]);
+        }
+        this.textRead += count;
+
+        // 文本已读完时，只剩指针所在的一个字符说明上一段缓冲区已处理到末尾
+        int readCount = count == 0 && offset <= 1 ? 0 : offset + count;
+        return this.filled(offset, readCount);
+    }
+
+    /**
+     * 下一次从文本读取的起点是next()中的缓冲区切换点，按切换缓冲区时的方式处理首字符
+     */
+    void resume() {
+        this.resumed = true;
+    }
+
+    /**
+     * 复制文本的[begin, end)区间，String和数组支持的CharBuffer整段复制
+     */
+    private static void getChars(CharSequence text, int begin, int end, char[] dst, int dstBegin) {
+        if (text instanceof String) {
+            ((String) text).getChars(begin, end, dst, dstBegin);
+        } else if (text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(begin, end, dst, dstBegin);
+        } else if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+            CharBuffer buffer = (CharBuffer) text;
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + buffer.position() + begin, dst, dstBegin, end - begin);
+        } else {
+            for (int i = begin; i < end; i++) {
+                dst[dstBegin++] = text.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * 缓冲区填充后，规范化新读入的字符并重置指针
+     */
+    private int filled(int offset, int readCount) {
+        // 一次规范化新读入的字符并识别类型，指针移动时不再逐个处理；第一个字符由initCursor处理
+        CharacterUtils.regularize(segmentBuff, charTypes, Math.max(offset, 1), readCount);
+
         // 更新最后一次从Reader中读入的可用字符串长度
         // & 重置当前指针
         this.available = readCount;
         this.cursor = 0;
+        // 上一段缓冲区的结果已全部输出，回收候选词元
+        this.pooledLexemes = 0;
+        // 整个缓冲区在同一词典版本上分析
+        this.dictionary = this.dict.snapshot();
 
         return readCount;
     }
@@ -171,8 +314,7 @@ public class AnalyzeContext {
      */
     public void initCursor() {
         cursor = 0;
-        segmentBuff[cursor] = CharacterUtils.regularize(segmentBuff[cursor]);
-        charTypes[cursor] = CharacterUtils.identifyCharType(segmentBuff[cursor]);
+        charTypes[cursor] = (byte) CharacterUtils.regularize(segmentBuff, cursor);
     }
 
     /**
@@ -183,8 +325,6 @@ public class AnalyzeContext {
         // 并未移动到尾部
         if (this.cursor < this.available - 1) {
             cursor++;
-            segmentBuff[cursor] = CharacterUtils.regularize(segmentBuff[cursor]);
-            charTypes[cursor] = CharacterUtils.identifyCharType(segmentBuff[cursor]);
 
             return true;
         }
@@ -199,7 +339,7 @@ public class AnalyzeContext {
      * @param segmenterName 子分词器的名称.
      */
     public void lockBuffer(String segmenterName) {
-        buffLocker.add(segmenterName);
+        buffLocks |= lockBit(segmenterName);
     }
 
     /**
@@ -208,7 +348,7 @@ public class AnalyzeContext {
      * @param segmenterName 子分词器的名称.
      */
     public void unlockBuffer(String segmenterName) {
-        buffLocker.remove(segmenterName);
+        buffLocks &= ~lockBit(segmenterName);
     }
 
     /**
@@ -216,7 +356,29 @@ public class AnalyzeContext {
      * @return
      */
     public boolean isBufferLocked() {
-        return buffLocker.size() > 0;
+        return buffLocks != 0;
+    }
+
+    /**
+     * 子分词器名称对应的锁位，首次使用时登记.
+     * @param segmenterName 子分词器的名称.
+     * @return
+     */
+    private long lockBit(String segmenterName) {
+        for (int i = 0; i < lockCount; i++) {
+            if (lockNames[i] == segmenterName || lockNames[i].equals(segmenterName)) {
+                return 1L << i;
+            }
+        }
+
+        if (lockCount == Long.SIZE) {
+            throw new IllegalStateException("too many segmenters: " + segmenterName);
+        }
+        if (lockCount == lockNames.length) {
+            lockNames = Arrays.copyOf(lockNames, lockCount * 2);
+        }
+        lockNames[lockCount] = segmenterName;
+        return 1L << lockCount++;
     }
 
     /**
@@ -253,6 +415,35 @@ public class AnalyzeContext {
         buffOffset += cursor;
     }
 
+    /**
+     * 创建当前缓冲区中的候选词元，开启词元复用时从词元池中取.
+     * @param begin 相对缓冲区的起始位置.
+     * @param length
+     * @param lexemeType
+     * @return
+     */
+    public Lexeme newLexeme(int begin, int length, int lexemeType) {
+        if (lexemePool == null) {
+            return new Lexeme(buffOffset, begin, length, lexemeType);
+        }
+
+        if (length < 0) {
+            throw new IllegalArgumentException("length < 0");
+        }
+        if (pooledLexemes == lexemePool.length) {
+            lexemePool = Arrays.copyOf(lexemePool, pooledLexemes * 2);
+        }
+        Lexeme lexeme = lexemePool[pooledLexemes];
+        if (lexeme == null) {
+            lexeme = new Lexeme(buffOffset, begin, length, lexemeType);
+            lexemePool[pooledLexemes] = lexeme;
+        } else {
+            lexeme.reset(buffOffset, begin, length, lexemeType);
+        }
+        pooledLexemes++;
+        return lexeme;
+    }
+
     /**
      * 向分词结果集添加词元.
      * @param lexeme
@@ -266,8 +457,13 @@ public class AnalyzeContext {
      * @param path
      */
     public void addLexemePath(LexemePath path) {
-        if (path != null) {
-            pathMap.put(path.getPathBegin(), path);
+        // 空路径的起始位置为-1，不会被输出
+        if (path != null && !path.isEmpty()) {
+            int begin = path.getPathBegin();
+            pathMap[begin] = path;
+            if (begin >= pathLimit) {
+                pathLimit = begin + 1;
+            }
         }
     }
 
@@ -294,7 +490,7 @@ public class AnalyzeContext {
             }
 
             // 从pathMap找出对应index位置的LexmePath
-            LexemePath path = pathMap.get(index);
+            LexemePath path = index < pathLimit ? pathMap[index] : null;
             if (path != null) {
                 // 输出LexmePath中的lexeme到results集合
                 Lexeme l = path.pollFirst();
@@ -312,7 +508,8 @@ public class AnalyzeContext {
         }
 
         // 清空当前的Map.
-        pathMap.clear();
+        Arrays.fill(pathMap, 0, pathLimit, null);
+        pathLimit = 0;
     }
 
     /**
@@ -321,10 +518,10 @@ public class AnalyzeContext {
      */
     public void outputSingleCJK(int index) {
         if (CharacterUtils.CHAR_CHINESE == charTypes[index]) {
-            Lexeme singleCharLexeme = new Lexeme(buffOffset, index, 1, Lexeme.TYPE_CNCHAR);
+            Lexeme singleCharLexeme = newLexeme(index, 1, Lexeme.TYPE_CNCHAR);
             results.add(singleCharLexeme);
         } else if (CharacterUtils.CHAR_OTHER_CJK == charTypes[index]) {
-            Lexeme singleCharLexeme = new Lexeme(this.buffOffset , index , 1 , Lexeme.TYPE_OTHER_CJK);
+            Lexeme singleCharLexeme = newLexeme(index , 1 , Lexeme.TYPE_OTHER_CJK);
             this.results.add(singleCharLexeme);
         } else ;
     }
@@ -336,43 +533,62 @@ public class AnalyzeContext {
      * @return
      */
     Lexeme getNextLexeme(){
+        return this.getNextLexeme(true);
+    }
+
+    /**
+     * 返回lexeme
+     *
+     * 同时处理合并
+     * @param withText 为false时只输出位置，不生成词元文本，返回的词元在下一段缓冲区中可能被复用
+     * @return
+     */
+    Lexeme getNextLexeme(boolean withText){
         //从结果集取出，并移除第一个Lexme
         Lexeme result = this.results.pollFirst();
         while(result != null){
             //数量词合并
             this.compound(result);
-            if(Dictionary.getSingleton().isStopWord(this.segmentBuff ,  result.getBegin() , result.getLength())){
+            if(this.dictionary.isStopWord(this.segmentBuff ,  result.getBegin() , result.getLength())){
                 //是停止词继续取列表的下一个
                 result = this.results.pollFirst();
-            }else{
+            }else if(withText){
                 //不是停止词, 生成lexeme的词元文本,输出
+                if(this.lexemePool != null){
+                    //池中的词元会在下一段缓冲区中复用，输出新建的词元
+                    result = new Lexeme(result.getOffset(), result.getBegin(), result.getLength(), result.getLexemeType());
+                }
                 result.setLexemeText(String.valueOf(segmentBuff , result.getBegin() , result.getLength()));
                 break;
+            }else{
+                break;
             }
         }
         return result;
     }
 
     /**
-     * 重置分词上下文状态
+     * 重置分词上下文状态，缓冲区和各集合都复用，不重新分配
      */
     void reset(){
-        this.buffLocker.clear();
-        this.orgLexemes = new QuickSortSet();
+        this.buffLocks = 0;
+        this.orgLexemes.clear();
+        this.pooledLexemes = 0;
         this.available =0;
         this.buffOffset = 0;
-        this.charTypes = new int[BUFF_SIZE];
+        this.textRead = 0;
+        this.resumed = false;
         this.cursor = 0;
         this.results.clear();
-        this.segmentBuff = new char[BUFF_SIZE];
-        this.pathMap.clear();
+        Arrays.fill(this.pathMap, 0, this.pathLimit, null);
+        this.pathLimit = 0;
     }
 
     /**
      * 组合词元
      */
     private void compound(Lexeme result){
-        if(!this.cfg.useSmart()){
+        if(!this.useSmart){
             return ;
         }
         //数量词合并处理
@@ -0,0 +1,121 @@
+package com.geohey.ikanalyzer.core;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量分词结果及本批次的吞吐统计.
+ */
+public final class BatchResult {
+
+    /**
+     * 按输入顺序排列的各文本分词结果.
+     */
+    private final List<List<String>> words;
+
+    /**
+     * 文本总字符数.
+     */
+    private final long chars;
+
+    /**
+     * 输出的词元总数.
+     */
+    private final long lexemes;
+
+    /**
+     * 本批次耗时(纳秒).
+     */
+    private final long elapsedNanos;
+
+    BatchResult(List<List<String>> words, long chars, long lexemes, long elapsedNanos) {
+        this.words = words;
+        this.chars = chars;
+        this.lexemes = lexemes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return 按输入顺序排列的各文本分词结果.
+     */
+    public List<List<String>> getWords() {
+        return words;
+    }
+
+    /**
+     * @return 文本数.
+     */
+    public int getDocuments() {
+        return words.size();
+    }
+
+    /**
+     * @return 文本总字符数.
+     */
+    public long getChars() {
+        return chars;
+    }
+
+    /**
+     * @return 输出的词元总数.
+     */
+    public long getLexemes() {
+        return lexemes;
+    }
+
+    /**
+     * @return 本批次耗时(纳秒).
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return 每秒处理的文本数.
+     */
+    public double getDocumentsPerSecond() {
+        return perSecond(words.size());
+    }
+
+    /**
+     * @return 每秒处理的字符数.
+     */
+    public double getCharsPerSecond() {
+        return perSecond(chars);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{documents=" + words.size() + ", chars=" + chars + ", lexemes=" + lexemes
+                + ", elapsedMillis=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                + ", documentsPerSecond=" + (long) getDocumentsPerSecond() + "}";
+    }
+}
@@ -0,0 +1,268 @@
+package com.geohey.ikanalyzer.core;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 批量分词.
+ * 把一批文本，或一段很长的文本，分段提交到线程池并行分词，每个工作线程通过{@link SegmenterPool}复用一个分词器，
+ * 结果按输入顺序返回. 实例是线程安全的，线程池由调用者管理.
+ */
+public final class BatchSegmenter {
+
+    /**
+     * 每个工作线程切分的任务数，任务更细时各线程负载更均衡.
+     */
+    private static final int TASKS_PER_WORKER = 4;
+
+    /**
+     * 长文本分段并行分词时，默认每段的最少字符数.
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * 分词器池.
+     */
+    private final SegmenterPool pool;
+
+    /**
+     * 执行分词的线程池.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * 线程池的并行度.
+     */
+    private final int parallelism;
+
+    /**
+     * 长文本分段并行分词时，每段的最少字符数.
+     */
+    private final int chunkSize;
+
+    /**
+     * @param pool 分词器池，决定使用的配置和词典
+     * @param executor 执行分词的线程池
+     * @param parallelism 线程池的并行度
+     */
+    public BatchSegmenter(SegmenterPool pool, ExecutorService executor, int parallelism) {
+        this(pool, executor, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool 分词器池，决定使用的配置和词典
+     * @param executor 执行分词的线程池
+     * @param parallelism 线程池的并行度
+     * @param chunkSize 长文本分段并行分词时，每段的最少字符数
+     */
+    public BatchSegmenter(SegmenterPool pool, ExecutorService executor, int parallelism, int chunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.pool = pool;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 使用{@link ForkJoinPool}分词，并行度取自线程池
+     * @param pool 分词器池，决定使用的配置和词典
+     * @param executor 执行分词的线程池
+     */
+    public BatchSegmenter(SegmenterPool pool, ForkJoinPool executor) {
+        this(pool, executor, executor.getParallelism());
+    }
+
+    /**
+     * 并行分词，阻塞到整批完成.
+     * @param texts 文本
+     * @param useSmart 为true，使用智能分词策略
+     * @return 按输入顺序排列的分词结果及吞吐统计
+     * @throws InterruptedException 等待时被中断
+     */
+    public BatchResult segment(Collection<? extends CharSequence> texts, final boolean useSmart) throws InterruptedException {
+        long start = System.nanoTime();
+        final CharSequence[] input = texts.toArray(new CharSequence[texts.size()]);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final List<String>[] words = new List[input.length];
+
+        int tasks = Math.min(input.length, this.parallelism * TASKS_PER_WORKER);
+        List<Future<long[]>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            final int begin = (int) ((long) input.length * i / tasks);
+            final int end = (int) ((long) input.length * (i + 1) / tasks);
+            futures.add(this.executor.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws IOException {
+                    return segment(input, words, begin, end, useSmart);
+                }
+            }));
+        }
+
+        long chars = 0;
+        long lexemes = 0;
+        for (long[] counts : getAll(futures)) {
+            chars += counts[0];
+            lexemes += counts[1];
+        }
+        return new BatchResult(Arrays.asList(words), chars, lexemes, System.nanoTime() - start);
+    }
+
+    /**
+     * 把一段很长的文本分段并行分词，结果与{@link IKSegmenter#split(CharSequence)}一致.
+     * 顺序分词的结果与4096字符缓冲区的切换位置有关，所以分段点取在顺序分词时的缓冲区切换点上. 切换点按顺序求出，
+     * 缓冲区末尾临界区内有分隔字符时直接确定，否则从最近的分隔字符开始重放子分词器，代价远小于分词；
+     * 各段交给线程池分词后拼接结果. 配置了时间预算时按顺序分词.
+     * @param text 文本
+     * @param useSmart 为true，使用智能分词策略
+     * @return 词元的起始位置和长度，依次存放为[begin0, length0, begin1, length1, ...]
+     * @throws InterruptedException 等待时被中断
+     */
+    public int[] split(CharSequence text, boolean useSmart) throws InterruptedException {
+        int length = text.length();
+        int chunk = Math.max(this.chunkSize, length / (this.parallelism * TASKS_PER_WORKER));
+        IKSegmenter ik = this.pool.acquire(null, useSmart);
+        try {
+            if (this.parallelism == 1 || length < chunk * 2 || ik.hasTimeBudget()) {
+                return ik.split(text);
+            }
+
+            //每隔chunk个字符取一个缓冲区切换点作为分段点，求出一段就提交一段，切换点的计算与分词同时进行
+            List<Future<int[]>> futures = new ArrayList<>();
+            int begin = 0;
+            for (int position = ik.nextBufferStart(text, 0, length); position < length;
+                 position = ik.nextBufferStart(text, position, length)) {
+                if (position - begin >= chunk) {
+                    futures.add(this.submit(text, begin, position, useSmart));
+                    begin = position;
+                }
+            }
+            futures.add(this.submit(text, begin, length, useSmart));
+
+            List<int[]> parts = getAll(futures);
+            int count = 0;
+            for (int[] part : parts) {
+                if (part == null) {
+                    //分段点与实际的缓冲区切换不一致，按顺序分词
+                    return ik.split(text);
+                }
+                count += part.length;
+            }
+            int[] offsets = new int[count];
+            count = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, offsets, count, part.length);
+                count += part.length;
+            }
+            return offsets;
+        } finally {
+            this.pool.release(ik);
+        }
+    }
+
+    /**
+     * 提交长文本中[begin, stop)一段的分词任务，begin和stop都是缓冲区切换点
+     */
+    private Future<int[]> submit(final CharSequence text, final int begin, final int stop, final boolean useSmart) {
+        return this.executor.submit(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                IKSegmenter ik = pool.acquire(null, useSmart);
+                try {
+                    return ik.split(text, begin, text.length(), stop, begin > 0);
+                } finally {
+                    pool.release(ik);
+                }
+            }
+        });
+    }
+
+    /**
+     * 等待全部任务完成，按提交顺序返回结果. 任务出现异常时取消其余任务，抛出该异常.
+     */
+    private static <T> List<T> getAll(List<Future<T>> futures) throws InterruptedException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            for (Future<T> future : futures) {
+                future.cancel(false);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+    /**
+     * 在当前线程对[begin, end)区间的文本分词
+     * @return 字符数和词元数
+     */
+    private long[] segment(CharSequence[] input, List<String>[] words, int begin, int end, boolean useSmart) throws IOException {
+        long chars = 0;
+        long lexemes = 0;
+        IKSegmenter ik = this.pool.acquire(null, useSmart);
+        try {
+            for (int i = begin; i < end; i++) {
+                String text = input[i].toString();
+                ik.reset(new StringReader(text));
+                List<String> list = new ArrayList<>();
+                Lexeme lexeme;
+                while ((lexeme = ik.next()) != null) {
+                    list.add(lexeme.getLexemeText());
+                }
+                words[i] = list;
+                chars += text.length();
+                lexemes += list.size();
+            }
+        } finally {
+            this.pool.release(ik);
+        }
+        return new long[]{chars, lexemes};
+    }
+}
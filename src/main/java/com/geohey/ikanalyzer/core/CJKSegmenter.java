@@ -27,13 +27,15 @@ package com.geohey.ikanalyzer.core;
 import java.util.LinkedList;
 import java.util.List;
 
-import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.dic.DictAutomaton;
 import com.geohey.ikanalyzer.dic.Hit;
 import com.geohey.ikanalyzer.util.CharacterUtils;
 
 
 /**
- * 中文-日韩文子分词器.
+ * 中文-日韩文子分词器. <br/>
+ * 词典引擎提供{@link DictAutomaton}时，用Aho-Corasick自动机逐字符找出以当前字符结尾的全部词；
+ * 否则逐个维护未完成的前缀匹配{@link Hit}.
  *
  * @author Liangyi Lin.
  */
@@ -43,16 +45,69 @@ public class CJKSegmenter implements ISegmenter {
     static final String SEGMENTER_NAME = "CJK_SEGMENTER";
     //待处理的分词hit队列
     private List<Hit> tmpHits;
+    //主词典自动机，词典引擎不支持时为null
+    private DictAutomaton automaton;
+    //自动机的当前状态
+    private int state;
 
 
     CJKSegmenter(){
         this.tmpHits = new LinkedList<Hit>();
+        this.state = DictAutomaton.ROOT;
     }
 
     /* (non-Javadoc)
      * @see org.wltea.analyzer.core.ISegmenter#analyze(org.wltea.analyzer.core.AnalyzeContext)
      */
     public void analyze(AnalyzeContext context) {
+        //没有未完成的匹配时才取词典当前的自动机，词典更新不影响进行中的匹配
+        if(this.tmpHits.isEmpty() && (this.automaton == null || !this.automaton.hasPrefix(this.state))){
+            this.automaton = context.getDictionary().getMainAutomaton();
+            this.state = DictAutomaton.ROOT;
+        }
+
+        if(this.automaton != null){
+            this.analyzeByAutomaton(context);
+        }else{
+            this.analyzeByHits(context);
+        }
+    }
+
+    /**
+     * 自动机匹配，每个字符一次状态转移.
+     */
+    private void analyzeByAutomaton(AnalyzeContext context) {
+        if(CharacterUtils.CHAR_USELESS != context.getCurrentCharType()){
+            this.state = this.automaton.next(this.state, context.getCurrentChar());
+
+            //由长到短输出以当前字符结尾的词
+            for(int word = this.automaton.firstWord(this.state); word != DictAutomaton.ROOT; word = this.automaton.nextWord(word)){
+                int length = this.automaton.length(word);
+                Lexeme newLexeme = context.newLexeme(context.getCursor() - length + 1 , length , Lexeme.TYPE_CNWORD);
+                context.addLexeme(newLexeme);
+            }
+        }else{
+            //遇到CHAR_USELESS字符，回到初始状态
+            this.state = DictAutomaton.ROOT;
+        }
+
+        //判断缓冲区是否已经读完
+        if(context.isBufferConsumed()){
+            this.state = DictAutomaton.ROOT;
+        }
+
+        //判断是否锁定缓冲区
+        if(this.automaton.hasPrefix(this.state)){
+            context.lockBuffer(SEGMENTER_NAME);
+        }else{
+            context.unlockBuffer(SEGMENTER_NAME);
+        }
+    }
+
+    /**
+     * 前缀匹配，逐个推进未完成的hit.
+     */
+    private void analyzeByHits(AnalyzeContext context) {
         if(CharacterUtils.CHAR_USELESS != context.getCurrentCharType()){
 
             //优先处理tmpHits中的hit
@@ -60,10 +115,10 @@ public class CJKSegmenter implements ISegmenter {
                 //处理词段队列
                 Hit[] tmpArray = this.tmpHits.toArray(new Hit[this.tmpHits.size()]);
                 for(Hit hit : tmpArray){
-                    hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor() , hit);
+                    hit = context.getDictionary().matchWithHit(context.getSegmentBuff(), context.getCursor() , hit);
                     if(hit.isMatch()){
                         //输出当前的词
-                        Lexeme newLexeme = new Lexeme(context.getBufferOffset() , hit.getBegin() , context.getCursor() - hit.getBegin() + 1 , Lexeme.TYPE_CNWORD);
+                        Lexeme newLexeme = context.newLexeme(hit.getBegin() , context.getCursor() - hit.getBegin() + 1 , Lexeme.TYPE_CNWORD);
                         context.addLexeme(newLexeme);
 
                         if(!hit.isPrefix()){//不是词前缀，hit不需要继续匹配，移除
@@ -78,21 +133,16 @@ public class CJKSegmenter implements ISegmenter {
             }
 
             //*********************************
-            //再对当前指针位置的字符进行单字匹配
-            Hit singleCharHit = Dictionary.getSingleton().matchInMainDict(context.getSegmentBuff(), context.getCursor(), 1);
-            if(singleCharHit.isMatch()){//首字成词
+            //再对当前指针位置的字符进行单字匹配，不在词典中的字不创建Hit
+            int singleCharState = context.getDictionary().matchCharInMainDict(context.getCurrentChar());
+            if((singleCharState & Hit.MATCH) != 0){//首字成词
                 //输出当前的词
-                Lexeme newLexeme = new Lexeme(context.getBufferOffset() , context.getCursor() , 1 , Lexeme.TYPE_CNWORD);
+                Lexeme newLexeme = context.newLexeme(context.getCursor() , 1 , Lexeme.TYPE_CNWORD);
                 context.addLexeme(newLexeme);
-
-                //同时也是词前缀
-                if(singleCharHit.isPrefix()){
-                    //前缀匹配则放入hit列表
-                    this.tmpHits.add(singleCharHit);
-                }
-            }else if(singleCharHit.isPrefix()){//首字为词前缀
+            }
+            if((singleCharState & Hit.PREFIX) != 0){//首字为词前缀
                 //前缀匹配则放入hit列表
-                this.tmpHits.add(singleCharHit);
+                this.tmpHits.add(context.getDictionary().matchInMainDict(context.getSegmentBuff(), context.getCursor(), 1));
             }
 
 
@@ -123,6 +173,7 @@ public class CJKSegmenter implements ISegmenter {
     public void reset() {
         //清空队列
         this.tmpHits.clear();
+        this.state = DictAutomaton.ROOT;
     }
 
 }
@@ -24,12 +24,9 @@ package com.geohey.ikanalyzer.core;
  *
  */
 
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
-import com.geohey.ikanalyzer.dic.Dictionary;
 import com.geohey.ikanalyzer.dic.Hit;
 import com.geohey.ikanalyzer.util.CharacterUtils;
 
@@ -44,12 +41,9 @@ public class CN_QuantifierSegmenter implements ISegmenter{
 	
 	//中文数词
 	private static String Chn_Num = "一二两三四五六七八九十零壹贰叁肆伍陆柒捌玖拾百千万亿拾佰仟萬億兆卅廿";//Cnum
-	private static Set<Character> ChnNumberChars = new HashSet<Character>();
-	static{
-		char[] ca = Chn_Num.toCharArray();
-		for(char nChar : ca){
-			ChnNumberChars.add(nChar);
-		}
+	//判断是否中文数词字符，直接查找字符串，不对char装箱
+	private static boolean isChnNumberChar(char nChar){
+		return Chn_Num.indexOf(nChar) >= 0;
 	}
 	
 	/*
@@ -108,14 +102,14 @@ public class CN_QuantifierSegmenter implements ISegmenter{
 	private void processCNumber(AnalyzeContext context){
 		if(nStart == -1 && nEnd == -1){//初始状态
 			if(CharacterUtils.CHAR_CHINESE == context.getCurrentCharType()
-					&& ChnNumberChars.contains(context.getCurrentChar())){
+					&& isChnNumberChar(context.getCurrentChar())){
 				//记录数词的起始、结束位置
 				nStart = context.getCursor();
 				nEnd = context.getCursor();
 			}
 		}else{//正在处理状态
 			if(CharacterUtils.CHAR_CHINESE == context.getCurrentCharType()
-					&& ChnNumberChars.contains(context.getCurrentChar())){
+					&& isChnNumberChar(context.getCurrentChar())){
 				//记录数词的结束位置
 				nEnd = context.getCursor();
 			}else{
@@ -156,10 +150,10 @@ public class CN_QuantifierSegmenter implements ISegmenter{
 				//处理词段队列
 				Hit[] tmpArray = this.countHits.toArray(new Hit[this.countHits.size()]);
 				for(Hit hit : tmpArray){
-					hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor() , hit);
+					hit = context.getDictionary().matchWithHit(context.getSegmentBuff(), context.getCursor() , hit);
 					if(hit.isMatch()){
 						//输出当前的词
-						Lexeme newLexeme = new Lexeme(context.getBufferOffset() , hit.getBegin() , context.getCursor() - hit.getBegin() + 1 , Lexeme.TYPE_COUNT);
+						Lexeme newLexeme = context.newLexeme(hit.getBegin() , context.getCursor() - hit.getBegin() + 1 , Lexeme.TYPE_COUNT);
 						context.addLexeme(newLexeme);
 						
 						if(!hit.isPrefix()){//不是词前缀，hit不需要继续匹配，移除
@@ -175,10 +169,10 @@ public class CN_QuantifierSegmenter implements ISegmenter{
 
 			//*********************************
 			//对当前指针位置的字符进行单字匹配
-			Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(), context.getCursor(), 1);
+			Hit singleCharHit = context.getDictionary().matchInQuantifierDict(context.getSegmentBuff(), context.getCursor(), 1);
 			if(singleCharHit.isMatch()){//首字成量词词
 				//输出当前的词
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , context.getCursor() , 1 , Lexeme.TYPE_COUNT);
+				Lexeme newLexeme = context.newLexeme(context.getCursor() , 1 , Lexeme.TYPE_COUNT);
 				context.addLexeme(newLexeme);
 
 				//同时也是词前缀
@@ -234,7 +228,7 @@ public class CN_QuantifierSegmenter implements ISegmenter{
 	private void outputNumLexeme(AnalyzeContext context){
 		if(nStart > -1 && nEnd > -1){
 			//输出数词
-			Lexeme newLexeme = new Lexeme(context.getBufferOffset() , nStart , nEnd - nStart + 1 , Lexeme.TYPE_CNUM);
+			Lexeme newLexeme = context.newLexeme(nStart , nEnd - nStart + 1 , Lexeme.TYPE_CNUM);
 			context.addLexeme(newLexeme);
 			
 		}
@@ -0,0 +1,120 @@
+package com.geohey.ikanalyzer.core;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 检查线程误用的分词器包装.
+ * {@link IKSegmenter}只能在一个线程内使用；包装后另一个线程在分词过程中进入时抛出{@link ConcurrentModificationException}，
+ * 不阻塞等待. 检查只做一次CAS，不持有监视器.
+ */
+public final class CheckedSegmenter {
+
+    /**
+     * 被包装的分词器.
+     */
+    private final IKSegmenter segmenter;
+
+    /**
+     * 正在使用分词器的线程，没有线程使用时为null.
+     */
+    private final AtomicReference<Thread> owner = new AtomicReference<>();
+
+    public CheckedSegmenter(IKSegmenter segmenter) {
+        this.segmenter = segmenter;
+    }
+
+    /**
+     * @see IKSegmenter#next()
+     */
+    public Lexeme next() throws IOException {
+        this.enter();
+        try {
+            return this.segmenter.next();
+        } finally {
+            this.exit();
+        }
+    }
+
+    /**
+     * @see IKSegmenter#split(CharSequence)
+     */
+    public int[] split(CharSequence text) {
+        this.enter();
+        try {
+            return this.segmenter.split(text);
+        } finally {
+            this.exit();
+        }
+    }
+
+    /**
+     * @see IKSegmenter#split(char[], int, int)
+     */
+    public int[] split(char[] text, int offset, int length) {
+        this.enter();
+        try {
+            return this.segmenter.split(text, offset, length);
+        } finally {
+            this.exit();
+        }
+    }
+
+    /**
+     * @see IKSegmenter#reset(Reader)
+     */
+    public void reset(Reader input) {
+        this.enter();
+        try {
+            this.segmenter.reset(input);
+        } finally {
+            this.exit();
+        }
+    }
+
+    /**
+     * @return 被包装的分词器
+     */
+    public IKSegmenter getSegmenter() {
+        return this.segmenter;
+    }
+
+    private void enter() {
+        Thread current = Thread.currentThread();
+        if (!this.owner.compareAndSet(null, current)) {
+            Thread other = this.owner.get();
+            String user = other == null ? "其他线程" : other == current ? "当前线程" : "线程" + other.getName();
+            throw new ConcurrentModificationException("分词器正在被" + user + "使用");
+        }
+    }
+
+    private void exit() {
+        this.owner.set(null);
+    }
+}
@@ -24,16 +24,96 @@
  */
 package com.geohey.ikanalyzer.core;
 
-import java.util.Stack;
-import java.util.TreeSet;
+import com.geohey.ikanalyzer.cfg.Configuration;
+
+import java.util.Arrays;
 
 /**
  * IK分词歧义裁决器
+ * <p>
+ * 歧义路径的候选方案与原回溯算法完全一致: 先从首个词元开始正向贪心得到初始方案，
+ * 再按从后往前的顺序，对每个冲突词元回滚方案，从该词元开始重新贪心得到新的方案.
+ * 每个候选方案都由"保留的部分 + 冲突词元 + 从其结束位置开始的贪心链"组成，
+ * 预先由后向前动态规划出每个词元开始的贪心链的权重，各权重在拼接时可直接合成，
+ * 因此每个候选方案的权重O(1)得出，整个歧义路径的裁决为线性时间，只在最后构造一次最优方案.
+ * </p>
+ * 歧义路径长度或候选方案数超过配置的限制时，直接采用初始方案，见{@link LatencyGuard}.
  */
 class IKArbitrator {
 
-	IKArbitrator(){
-		
+	/**
+	 * 歧义路径的最大长度，0表示不限制.
+	 */
+	private final int maxCrossPathLength;
+
+	/**
+	 * 最大候选方案数，0表示不限制.
+	 */
+	private final int maxCandidatePaths;
+
+	/**
+	 * 歧义路径中的词元，按起始位置升序、长度降序排列.
+	 */
+	private Lexeme[] lexemes;
+
+	private int[] begin;
+
+	private int[] end;
+
+	/**
+	 * 贪心链中的下一个词元，即第一个起始位置不小于该词元结束位置的词元，不存在时为词元个数.
+	 */
+	private int[] next;
+
+	/**
+	 * 从各词元开始的贪心链的权重，最后一个位置为空链.
+	 */
+	private int[] chainPayload;
+
+	private int[] chainSize;
+
+	private int[] chainXWeight;
+
+	private int[] chainPWeight;
+
+	private int[] chainEnd;
+
+	/**
+	 * 初始方案，即从首个词元开始的贪心链.
+	 */
+	private int[] greedy;
+
+	private boolean[] inGreedy;
+
+	/**
+	 * 初始方案各前缀的权重.
+	 */
+	private int[] prefixPayload;
+
+	private int[] prefixSize;
+
+	private int[] prefixXWeight;
+
+	private int[] prefixPWeight;
+
+	/**
+	 * 加在方案最前面的冲突词元组成的链表.
+	 */
+	private int[] frontNext;
+
+	/**
+	 * 各文本位置之后的第一个词元.
+	 */
+	private int[] firstAt;
+
+	private final Weight option = new Weight();
+
+	private final Weight best = new Weight();
+
+	IKArbitrator(Configuration cfg){
+		this.maxCrossPathLength = cfg.getMaxCrossPathLength();
+		this.maxCandidatePaths = cfg.getMaxCandidatePaths();
+		this.ensureCapacity(16, 16);
 	}
 	
 	/**
@@ -55,8 +135,7 @@ class IKArbitrator {
 					context.addLexemePath(crossPath);
 				}else{
 					//对当前的crossPath进行歧义处理
-					QuickSortSet.Cell headCell = crossPath.getHead();
-					LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+					LexemePath judgeResult = this.judge(crossPath);
 					//输出歧义处理结果judgeResult
 					context.addLexemePath(judgeResult);
 				}
@@ -76,8 +155,7 @@ class IKArbitrator {
 			context.addLexemePath(crossPath);
 		}else{
 			//对当前的crossPath进行歧义处理
-			QuickSortSet.Cell headCell = crossPath.getHead();
-			LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+			LexemePath judgeResult = this.judge(crossPath);
 			//输出歧义处理结果judgeResult
 			context.addLexemePath(judgeResult);
 		}
@@ -85,69 +163,293 @@ class IKArbitrator {
 	
 	/**
 	 * 歧义识别
-	 * @param lexemeCell 歧义路径链表头
-	 * @param fullTextLength 歧义路径文本长度
-	 * @param option 候选结果路径
-	 * @return
-	 */
-	private LexemePath judge(QuickSortSet.Cell lexemeCell , int fullTextLength){
-		//候选路径集合
-		TreeSet<LexemePath> pathOptions = new TreeSet<LexemePath>();
-		//候选结果路径
-		LexemePath option = new LexemePath();
-		
-		//对crossPath进行一次遍历,同时返回本次遍历中有冲突的Lexeme栈
-		Stack<QuickSortSet.Cell> lexemeStack = this.forwardPath(lexemeCell , option);
-		
-		//当前词元链并非最理想的，加入候选路径集合
-		pathOptions.add(option.copy());
-		
-		//存在歧义词，处理
-		QuickSortSet.Cell c = null;
-		while(!lexemeStack.isEmpty()){
-			c = lexemeStack.pop();
-			//回滚词元链
-			this.backPath(c.getLexeme() , option);
-			//从歧义词位置开始，递归，生成可选方案
-			this.forwardPath(c , option);
-			pathOptions.add(option.copy());
+	 * @param crossPath 歧义路径
+	 * @return 最优方案
+	 */
+	private LexemePath judge(LexemePath crossPath){
+		int n = this.load(crossPath);
+
+		//初始方案
+		int r = this.fillGreedy(n);
+		//加在最前面的冲突词元链表及其权重
+		int front = -1;
+		int frontPayload = 0, frontSize = 0, frontXWeight = 1, frontPWeight = 0, frontEnd = -1;
+		//最后加入的冲突词元，方案在该词元之后是从其结束位置开始的贪心链
+		int core = -1;
+
+		this.weigh(this.best, front, frontPayload, frontSize, frontXWeight, frontPWeight, frontEnd, r, core);
+		int bestFront = front, bestR = r, bestCore = core;
+
+		//按从后往前的顺序处理冲突词元，超过限制时直接采用初始方案
+		int conflicts = this.exceedsLimits(crossPath, n - r + 1) ? 0 : n;
+		for(int s = conflicts - 1 ; s >= 0 ; s--){
+			if(this.inGreedy[s]){
+				continue;
+			}
+
+			int optionBegin = front >= 0 ? this.begin[front] : (r > 0 ? this.begin[0] : (core >= 0 ? this.begin[core] : -1));
+			if(optionBegin >= 0 && optionBegin > this.begin[s] && optionBegin >= this.end[s]){
+				//冲突词元在方案之前，方案不变，冲突词元加在最前面
+				this.frontNext[s] = front;
+				front = s;
+				int length = this.end[s] - this.begin[s];
+				frontPWeight = length + frontPWeight + frontPayload;
+				frontXWeight = length * frontXWeight;
+				frontPayload += length;
+				if(frontSize++ == 0){
+					frontEnd = this.end[s];
+				}
+			}else{
+				if(optionBegin >= 0 && optionBegin <= this.begin[s]){
+					//回滚到结束位置不超过冲突词元起始位置的部分，加在最前面的词元和上次的贪心链都在冲突词元之后
+					while(r > 0 && this.end[this.greedy[r - 1]] > this.begin[s]){
+						r--;
+					}
+				}else{
+					//冲突词元与方案的起始位置交叉，整个方案回滚
+					r = 0;
+				}
+				front = -1;
+				frontPayload = 0;
+				frontSize = 0;
+				frontXWeight = 1;
+				frontPWeight = 0;
+				frontEnd = -1;
+				//从冲突词元开始贪心
+				core = s;
+			}
+
+			this.weigh(this.option, front, frontPayload, frontSize, frontXWeight, frontPWeight, frontEnd, r, core);
+			//权重相同时保留先得到的方案
+			if(this.option.compareTo(this.best) < 0){
+				this.best.set(this.option);
+				bestFront = front;
+				bestR = r;
+				bestCore = core;
+			}
 		}
-		
-		//返回集合中的最优方案
-		return pathOptions.first();
 
+		//构造最优方案
+		LexemePath path = new LexemePath();
+		for(int f = bestFront ; f >= 0 ; f = this.frontNext[f]){
+			path.addNotCrossLexeme(this.lexemes[f]);
+		}
+		for(int i = 0 ; i < bestR ; i++){
+			path.addNotCrossLexeme(this.lexemes[this.greedy[i]]);
+		}
+		for(int c = bestCore ; c >= 0 && c < n ; c = this.next[c]){
+			path.addNotCrossLexeme(this.lexemes[c]);
+		}
+		Arrays.fill(this.lexemes, 0, n, null);
+		return path;
 	}
-	
+
 	/**
-	 * 向前遍历，添加词元，构造一个无歧义词元组合
-	 * @param LexemePath path
-	 * @return
-	 */
-	private Stack<QuickSortSet.Cell> forwardPath(QuickSortSet.Cell lexemeCell , LexemePath option){
-		//发生冲突的Lexeme栈
-		Stack<QuickSortSet.Cell> conflictStack = new Stack<QuickSortSet.Cell>();
-		QuickSortSet.Cell c = lexemeCell;
-		//迭代遍历Lexeme链表
-		while(c != null && c.getLexeme() != null){
-			if(!option.addNotCrossLexeme(c.getLexeme())){
-				//词元交叉，添加失败则加入lexemeStack栈
-				conflictStack.push(c);
+	 * 检查歧义路径是否超过配置的限制，超过时记录触发的保护.
+	 * @param candidates 候选方案数
+	 */
+	private boolean exceedsLimits(LexemePath crossPath , int candidates){
+		if(this.maxCrossPathLength > 0 && crossPath.getPathLength() > this.maxCrossPathLength){
+			LatencyGuard.CROSS_PATH_LENGTH.fire();
+			return true;
+		}
+		if(this.maxCandidatePaths > 0 && candidates > this.maxCandidatePaths){
+			LatencyGuard.CANDIDATE_PATHS.fire();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 读入歧义路径的词元，由后向前计算各词元开始的贪心链的权重.
+	 * @return 词元个数
+	 */
+	private int load(LexemePath crossPath){
+		int n = crossPath.size();
+		int pathBegin = crossPath.getPathBegin();
+		int pathLength = crossPath.getPathLength();
+		this.ensureCapacity(n, pathLength);
+
+		for(int i = 0 ; i < n ; i++){
+			this.lexemes[i] = crossPath.get(i);
+			this.begin[i] = crossPath.getBegin(i);
+			this.end[i] = this.begin[i] + crossPath.getLength(i);
+			this.inGreedy[i] = false;
+		}
+
+		for(int p = pathLength , first = n ; p >= 0 ; p--){
+			while(first > 0 && this.begin[first - 1] >= pathBegin + p){
+				first--;
 			}
-			c = c.getNext();
+			this.firstAt[p] = first;
 		}
-		return conflictStack;
+
+		this.chainPayload[n] = 0;
+		this.chainSize[n] = 0;
+		this.chainXWeight[n] = 1;
+		this.chainPWeight[n] = 0;
+		for(int i = n - 1 ; i >= 0 ; i--){
+			int j = this.firstAt[this.end[i] - pathBegin];
+			int length = this.end[i] - this.begin[i];
+			this.next[i] = j;
+			this.chainPayload[i] = length + this.chainPayload[j];
+			this.chainSize[i] = 1 + this.chainSize[j];
+			this.chainXWeight[i] = length * this.chainXWeight[j];
+			this.chainPWeight[i] = length + this.chainPWeight[j] + this.chainPayload[j];
+			this.chainEnd[i] = j == n ? this.end[i] : this.chainEnd[j];
+		}
+		return n;
 	}
-	
+
 	/**
-	 * 回滚词元链，直到它能够接受指定的词元
-	 * @param lexeme 
-	 * @param l
+	 * 从首个词元开始正向贪心，得到初始方案及其各前缀的权重.
+	 * @return 初始方案的词元个数
 	 */
-	private void backPath(Lexeme l  , LexemePath option){
-		while(option.checkCross(l)){
-			option.removeTail();
+	private int fillGreedy(int n){
+		this.prefixPayload[0] = 0;
+		this.prefixSize[0] = 0;
+		this.prefixXWeight[0] = 1;
+		this.prefixPWeight[0] = 0;
+
+		int m = 0;
+		for(int i = 0 ; i < n ; i = this.next[i]){
+			int length = this.end[i] - this.begin[i];
+			this.greedy[m] = i;
+			this.inGreedy[i] = true;
+			this.prefixPayload[m + 1] = this.prefixPayload[m] + length;
+			this.prefixSize[m + 1] = m + 1;
+			this.prefixXWeight[m + 1] = this.prefixXWeight[m] * length;
+			this.prefixPWeight[m + 1] = this.prefixPWeight[m] + (m + 1) * length;
+			m++;
+		}
+		return m;
+	}
+
+	/**
+	 * 合成方案的权重: 最前面的冲突词元或初始方案的前缀，之后是冲突词元开始的贪心链.
+	 */
+	private void weigh(Weight weight , int front , int frontPayload , int frontSize , int frontXWeight , int frontPWeight , int frontEnd ,
+			int r , int core){
+		weight.clear();
+		if(front >= 0){
+			weight.append(frontPayload, frontSize, frontXWeight, frontPWeight, this.begin[front], frontEnd);
+		}else if(r > 0){
+			weight.append(this.prefixPayload[r], this.prefixSize[r], this.prefixXWeight[r], this.prefixPWeight[r],
+					this.begin[this.greedy[0]], this.end[this.greedy[r - 1]]);
+		}
+		if(core >= 0){
+			weight.append(this.chainPayload[core], this.chainSize[core], this.chainXWeight[core], this.chainPWeight[core],
+					this.begin[core], this.chainEnd[core]);
+		}
+	}
+
+	private void ensureCapacity(int n , int pathLength){
+		if(this.lexemes == null || this.lexemes.length < n){
+			int capacity = this.lexemes == null ? n : Math.max(n, this.lexemes.length * 2);
+			this.lexemes = new Lexeme[capacity];
+			this.begin = new int[capacity];
+			this.end = new int[capacity];
+			this.next = new int[capacity];
+			this.chainPayload = new int[capacity + 1];
+			this.chainSize = new int[capacity + 1];
+			this.chainXWeight = new int[capacity + 1];
+			this.chainPWeight = new int[capacity + 1];
+			this.chainEnd = new int[capacity];
+			this.greedy = new int[capacity];
+			this.inGreedy = new boolean[capacity];
+			this.prefixPayload = new int[capacity + 1];
+			this.prefixSize = new int[capacity + 1];
+			this.prefixXWeight = new int[capacity + 1];
+			this.prefixPWeight = new int[capacity + 1];
+			this.frontNext = new int[capacity];
+		}
+		if(this.firstAt == null || this.firstAt.length < pathLength + 1){
+			this.firstAt = new int[this.firstAt == null ? pathLength + 1 : Math.max(pathLength + 1, this.firstAt.length * 2)];
+		}
+	}
+
+	/**
+	 * 方案的权重，各要素与{@link LexemePath#compareTo(LexemePath)}一致，按int运算(与原实现相同的溢出行为).
+	 * 两段方案拼接时各要素都可由两段的要素算出: 有效长度、词元个数相加，长度积相乘，
+	 * 位置权重为两段之和再加上前段词元个数与后段有效长度之积.
+	 */
+	private static final class Weight {
+
+		int payloadLength;
+
+		int size;
+
+		int pathBegin;
+
+		int pathEnd;
+
+		int xWeight;
+
+		int pWeight;
+
+		void clear(){
+			this.payloadLength = 0;
+			this.size = 0;
+			this.pathBegin = -1;
+			this.pathEnd = -1;
+			this.xWeight = 1;
+			this.pWeight = 0;
+		}
+
+		void append(int payloadLength , int size , int xWeight , int pWeight , int pathBegin , int pathEnd){
+			if(size == 0){
+				return;
+			}
+			if(this.size == 0){
+				this.pathBegin = pathBegin;
+			}
+			this.pWeight += pWeight + this.size * payloadLength;
+			this.xWeight *= xWeight;
+			this.payloadLength += payloadLength;
+			this.size += size;
+			this.pathEnd = pathEnd;
+		}
+
+		void set(Weight o){
+			this.payloadLength = o.payloadLength;
+			this.size = o.size;
+			this.pathBegin = o.pathBegin;
+			this.pathEnd = o.pathEnd;
+			this.xWeight = o.xWeight;
+			this.pWeight = o.pWeight;
+		}
+
+		/**
+		 * 与{@link LexemePath#compareTo(LexemePath)}的比较顺序相同.
+		 */
+		int compareTo(Weight o){
+			// 比较有效文本长度
+			if(this.payloadLength != o.payloadLength){
+				return this.payloadLength > o.payloadLength ? -1 : 1;
+			}
+			// 有效文本长度相等，比较词元个数，越少越好
+			if(this.size != o.size){
+				return this.size < o.size ? -1 : 1;
+			}
+			// 词元个数相等，路径跨度进行比较
+			int pathLength = this.pathEnd - this.pathBegin;
+			int otherPathLength = o.pathEnd - o.pathBegin;
+			if(pathLength != otherPathLength){
+				return pathLength > otherPathLength ? -1 : 1;
+			}
+			// 位置越靠后的优先
+			if(this.pathEnd != o.pathEnd){
+				return this.pathEnd > o.pathEnd ? -1 : 1;
+			}
+			// 词长越平均越好
+			if(this.xWeight != o.xWeight){
+				return this.xWeight > o.xWeight ? -1 : 1;
+			}
+			// 词元位置权重比较
+			if(this.pWeight != o.pWeight){
+				return this.pWeight > o.pWeight ? -1 : 1;
+			}
+			return 0;
 		}
-		
 	}
-	
 }
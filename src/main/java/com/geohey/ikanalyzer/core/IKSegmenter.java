@@ -27,28 +27,64 @@ package com.geohey.ikanalyzer.core;
 import com.geohey.ikanalyzer.cfg.Configuration;
 import com.geohey.ikanalyzer.cfg.DefaultConfig;
 import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.dic.IDictionary;
+import com.geohey.ikanalyzer.util.CharacterUtils;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * IK分词器主类.
+ * 分词器不加锁，只能在一个线程内使用，从Reader读取时不持有任何监视器. 多个线程分词时每个线程使用各自的分词器，
+ * 可以通过{@link SegmenterPool}复用；需要检查误用时用{@link CheckedSegmenter}包装.
  *
  * @author Liangyi Lin.
  */
-public final class IKSegmenter {
+public final class IKSegmenter implements Iterable<Lexeme> {
 
     /**
      * 字符窜reader.
      */
     private Reader input;
+
+    /**
+     * 不经过Reader直接分词的文本，及其[textBegin, textEnd)区间.
+     */
+    private CharSequence text;
+    private int textBegin;
+    private int textEnd;
+
+    /**
+     * 分段并行分词时，到达该位置的缓冲区切换点后停止.
+     */
+    private int textStop;
+
+    /**
+     * 按位置分词的结果缓冲，依次存放词元的起始位置和长度.
+     */
+    private int[] offsets = new int[64];
     /**
      * 分词器配置项.
      */
     private Configuration cfg;
 
+    /**
+     * 是否智能分词，每个分词器实例独立设置，不修改配置.
+     */
+    private boolean useSmart;
+
+    /**
+     * 词典.
+     */
+    private IDictionary dictionary;
+
     /**
      * 分词器上下文.
      */
@@ -64,6 +100,21 @@ public final class IKSegmenter {
      */
     private IKArbitrator arbitrator;
 
+    /**
+     * 每段文本的分词时间预算(纳秒)，0表示不限制.
+     */
+    private long timeBudget;
+
+    /**
+     * 当前文本的分词截止时间，0表示尚未开始.
+     */
+    private long deadline;
+
+    /**
+     * 当前文本是否已超出时间预算.
+     */
+    private boolean exhausted;
+
 
     /**
      * IK分词器构造函数
@@ -76,7 +127,7 @@ public final class IKSegmenter {
     public IKSegmenter(Reader input , boolean useSmart){
         this.input = input;
         this.cfg = DefaultConfig.getSingleton();
-        this.cfg.setUseSmart(useSmart);
+        this.useSmart = useSmart;
         this.init();
     }
 
@@ -89,6 +140,34 @@ public final class IKSegmenter {
     public IKSegmenter(Reader input , Configuration cfg){
         this.input = input;
         this.cfg = cfg;
+        this.useSmart = cfg.useSmart();
+        this.init();
+    }
+
+    /**
+     * IK分词器构造函数
+     * @param input
+     * @param cfg 使用自定义的Configuration构造分词器
+     * @param dictionary 使用的词典，由{@link Dictionary#open(Configuration)}创建
+     *
+     */
+    public IKSegmenter(Reader input , Configuration cfg , IDictionary dictionary){
+        this(input, cfg, dictionary, cfg.useSmart());
+    }
+
+    /**
+     * IK分词器构造函数
+     * @param input
+     * @param cfg 使用自定义的Configuration构造分词器
+     * @param dictionary 使用的词典，由{@link Dictionary#open(Configuration)}创建
+     * @param useSmart 为true，使用智能分词策略，不使用配置中的设置
+     *
+     */
+    public IKSegmenter(Reader input , Configuration cfg , IDictionary dictionary , boolean useSmart){
+        this.input = input;
+        this.cfg = cfg;
+        this.dictionary = dictionary;
+        this.useSmart = useSmart;
         this.init();
     }
 
@@ -96,14 +175,18 @@ public final class IKSegmenter {
      * 初始化
      */
     private void init(){
-        //初始化词典单例
-        Dictionary.initial(this.cfg);
+        //没有指定词典时，使用词典单例
+        if(this.dictionary == null){
+            this.dictionary = Dictionary.initial(this.cfg);
+        }
         //初始化分词上下文
-        this.context = new AnalyzeContext(this.cfg);
+        this.context = new AnalyzeContext(this.cfg , this.dictionary);
+        this.context.setUseSmart(this.useSmart);
         //加载子分词器
         this.segmenters = this.loadSegmenters();
         //加载歧义裁决器
-        this.arbitrator = new IKArbitrator();
+        this.arbitrator = new IKArbitrator(this.cfg);
+        this.timeBudget = TimeUnit.MILLISECONDS.toNanos(this.cfg.getTimeBudgetMillis());
     }
 
     /**
@@ -122,36 +205,211 @@ public final class IKSegmenter {
     }
 
     /**
-     * 分词，获取下一个词元
+     * @return 是否智能分词
+     */
+    public boolean useSmart(){
+        return this.useSmart;
+    }
+
+    /**
+     * 分词，获取下一个词元. 超出时间预算时，输出完已完成的分词结果后返回null
      * @return Lexeme 词元对象
      * @throws java.io.IOException
      */
-    public synchronized Lexeme next()throws IOException{
+    public Lexeme next()throws IOException{
+        return this.nextLexeme(true);
+    }
+
+    /**
+     * 直接对文本分词，不经过Reader. 文本短于缓冲区时只复制一次，不分段读取.
+     * 调用后需要{@link #reset(Reader)}才能继续使用{@link #next()}.
+     * @param text 文本
+     * @return 词元的起始位置和长度，依次存放为[begin0, length0, begin1, length1, ...]
+     */
+    public int[] split(CharSequence text){
+        return this.split(text, 0, text.length());
+    }
+
+    /**
+     * 直接对字符数组的[offset, offset + length)区间分词，不复制数组，也不修改数组内容.
+     * 调用后需要{@link #reset(Reader)}才能继续使用{@link #next()}.
+     * @param text 字符数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 词元在数组中的起始位置和长度，依次存放为[begin0, length0, begin1, length1, ...]
+     */
+    public int[] split(char[] text , int offset , int length){
+        return this.split(CharBuffer.wrap(text), offset, offset + length);
+    }
+
+    private int[] split(CharSequence text , int begin , int end){
+        return this.split(text, begin, end, end, false);
+    }
+
+    /**
+     * 对文本从缓冲区切换点begin开始分词，到下一个切换点stop停止，用于一段文本的分段并行分词.
+     * 切换点由{@link #nextBufferStart(CharSequence, int, int)}计算，各段结果依次拼接与整段分词一致.
+     * @param text 文本
+     * @param begin 起始的缓冲区切换点
+     * @param end 文本的结束位置
+     * @param stop 停止的缓冲区切换点
+     * @param resume begin是否为上一段缓冲区切换而来的位置
+     * @return 词元的起始位置和长度，实际的切换点与stop不一致时返回null
+     */
+    int[] split(CharSequence text , int begin , int end , int stop , boolean resume){
+        this.reset(null);
+        if(resume){
+            context.resume();
+        }
+        this.text = text;
+        this.textBegin = begin;
+        this.textEnd = end;
+        this.textStop = stop;
+        int[] offsets = this.offsets;
+        int count = 0;
+        try{
+            Lexeme l;
+            while((l = this.nextLexeme(false)) != null){
+                if(count == offsets.length){
+                    offsets = this.offsets = Arrays.copyOf(offsets, count << 1);
+                }
+                offsets[count++] = begin + l.getBeginPosition();
+                offsets[count++] = l.getLength();
+            }
+            if(stop < end && begin + context.getBufferOffset() != stop){
+                return null;
+            }
+        }catch(IOException e){
+            //文本不经过Reader，不会出现IO异常
+            throw new IllegalStateException(e);
+        }finally{
+            this.text = null;
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * 计算next()对文本分词时，从bufferStart开始的缓冲区之后下一段缓冲区的起点.
+     * 缓冲区填满时，指针进入末尾临界区后在第一个未锁定的位置切换；整个临界区都锁定时处理到缓冲区末尾.
+     * 分隔字符处一定未锁定，其他位置从临界区前最近的分隔字符(没有时从bufferStart)开始重放子分词器判断.
+     * @param text 文本
+     * @param bufferStart 缓冲区起点，是文本起点或上一段缓冲区的切换点
+     * @param end 文本的结束位置
+     * @return 下一段缓冲区的起点，bufferStart开始的是最后一段缓冲区时返回end
+     */
+    int nextBufferStart(CharSequence text , int bufferStart , int end){
+        if(end - bufferStart < AnalyzeContext.BUFF_SIZE){
+            return end;
+        }
+        //needRefillBuffer()中可以切换缓冲区的位置为[critical, last]
+        int critical = bufferStart + AnalyzeContext.BUFF_SIZE - AnalyzeContext.BUFF_EXHAUST_CRITICAL + 1;
+        int last = bufferStart + AnalyzeContext.BUFF_SIZE - 2;
+        int separator = critical;
+        while(separator <= last && !isSeparator(text.charAt(separator))){
+            separator++;
+        }
+        if(separator > critical){
+            int from = critical - 1;
+            while(from > bufferStart && !isSeparator(text.charAt(from))){
+                from--;
+            }
+            int unlocked = this.firstUnlocked(text, from, from == bufferStart && bufferStart > 0,
+                    critical, Math.min(separator, last + 1), bufferStart + AnalyzeContext.BUFF_SIZE);
+            if(unlocked >= 0){
+                return unlocked;
+            }
+        }
+        return separator <= last ? separator : bufferStart + AnalyzeContext.BUFF_SIZE - 1;
+    }
+
+    /**
+     * 从from开始重放子分词器，返回[critical, limit)中第一个分析后缓冲区未锁定的位置，没有时返回-1
+     */
+    private int firstUnlocked(CharSequence text , int from , boolean resume , int critical , int limit , int bufferEnd){
+        this.reset(null);
+        if(resume){
+            context.resume();
+        }
+        int unlocked = -1;
+        context.fillBuffer(text, from, bufferEnd);
+        context.initCursor();
+        do{
+            for(int i = 0; i < segmenters.size(); i++){
+                segmenters.get(i).analyze(context);
+            }
+            int position = from + context.getCursor();
+            if(position >= limit){
+                break;
+            }
+            if(position >= critical && !context.isBufferLocked()){
+                unlocked = position;
+                break;
+            }
+        }while(context.moveCursor());
+        this.reset(null);
+        return unlocked;
+    }
+
+    /**
+     * 规范化后是CHAR_USELESS且不是连接符号的字符，分析后任何子分词器都不会锁定缓冲区
+     */
+    private static boolean isSeparator(char c){
+        char input = CharacterUtils.regularize(c);
+        return CharacterUtils.identifyCharType(input) == CharacterUtils.CHAR_USELESS && !LetterSegmenter.isConnector(input);
+    }
+
+    /**
+     * @return 是否设置了分词时间预算
+     */
+    boolean hasTimeBudget(){
+        return this.timeBudget > 0;
+    }
+
+    private Lexeme nextLexeme(boolean withText)throws IOException{
         Lexeme l = null;
-        while((l = context.getNextLexeme()) == null ){
+        while((l = context.getNextLexeme(withText)) == null ){
+            if(this.exhausted){
+                //超出时间预算，剩余的文本不再分词
+                this.finish();
+                return null;
+            }
 			/*
 			 * 从reader中读取数据，填充buffer
 			 * 如果reader是分次读入buffer的，那么buffer要  进行移位处理
 			 * 移位处理上次读入的但未处理的数据
 			 */
-            int available = context.fillBuffer(this.input);
+            if(this.text != null && this.textStop < this.textEnd && this.textBegin + context.getBufferOffset() >= this.textStop){
+                //到达停止的缓冲区切换点
+                return null;
+            }
+            int available = this.text != null ? context.fillBuffer(this.text, this.textBegin, this.textEnd)
+                    : this.input != null ? context.fillBuffer(this.input) : 0;
             if(available <= 0){
                 //reader已经读完
-                context.reset();
+                this.finish();
                 return null;
 
             }else{
+                if(this.timeBudget > 0 && this.deadline == 0){
+                    this.deadline = System.nanoTime() + this.timeBudget;
+                }
                 //初始化指针
                 context.initCursor();
                 do{
-                    //遍历子分词器
-                    for(ISegmenter segmenter : segmenters){
-                        segmenter.analyze(context);
+                    //遍历子分词器，每个字符都执行，按下标遍历不创建迭代器
+                    for(int i = 0; i < segmenters.size(); i++){
+                        segmenters.get(i).analyze(context);
                     }
                     //字符缓冲区接近读完，需要读入新的字符
                     if(context.needRefillBuffer()){
                         break;
                     }
+                    //每隔一段字符检查时间预算，超出时只处理已分析的字符
+                    if(this.deadline != 0 && (context.getCursor() & 0xFF) == 0 && System.nanoTime() - this.deadline > 0){
+                        LatencyGuard.TIME_BUDGET.fire();
+                        this.exhausted = true;
+                        break;
+                    }
                     //向前移动指针
                 }while(context.moveCursor());
                 //重置子分词器，为下轮循环进行初始化
@@ -160,7 +418,7 @@ public final class IKSegmenter {
                 }
             }
             //对分词进行歧义处理
-            this.arbitrator.process(context, this.cfg.useSmart());
+            this.arbitrator.process(context, this.useSmart);
             //将分词结果输出到结果集，并处理未切分的单个CJK字符
             context.outputToResult();
             //记录本次分词的缓冲区位移
@@ -169,15 +427,73 @@ public final class IKSegmenter {
         return l;
     }
 
+    /**
+     * 按需逐个取出当前文本剩余的词元，与反复调用{@link #next()}相同，不缓存分词结果.
+     * 可以用于for-each循环；Java 8以上可以通过spliterator()构造Stream，由消费方拉取，天然按需产生词元.
+     * 每个文本只能遍历一次，读取异常包装为IllegalStateException抛出.
+     * @return 词元迭代器
+     */
+    @Override
+    public Iterator<Lexeme> iterator() {
+        return new Iterator<Lexeme>() {
+            private Lexeme lexeme;
+
+            /**
+             * 文本是否已遍历完，之后不再调用next().
+             */
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (this.lexeme == null && !this.done) {
+                    try {
+                        this.lexeme = IKSegmenter.this.next();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    this.done = this.lexeme == null;
+                }
+                return this.lexeme != null;
+            }
+
+            @Override
+            public Lexeme next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Lexeme next = this.lexeme;
+                this.lexeme = null;
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
     /**
      * 重置分词器到初始状态
      * @param input
      */
-    public synchronized void reset(Reader input) {
+    public void reset(Reader input) {
         this.input = input;
+        this.deadline = 0;
+        this.exhausted = false;
         context.reset();
         for(ISegmenter segmenter : segmenters){
             segmenter.reset();
         }
     }
+
+    /**
+     * 当前文本分词结束，释放输入，{@link #reset(Reader)}前next()一直返回null.
+     */
+    private void finish() {
+        this.input = null;
+        context.reset();
+        this.deadline = 0;
+        this.exhausted = false;
+    }
 }
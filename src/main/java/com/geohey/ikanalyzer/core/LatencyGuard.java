@@ -0,0 +1,72 @@
+package com.geohey.ikanalyzer.core;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分词延迟保护. <br/>
+ * 对抗性或机器生成的文本可能产生很长的歧义路径，通过{@link com.geohey.ikanalyzer.cfg.Configuration}中的限制，
+ * 超限时歧义裁决退化为线性的正向贪心切分，超出时间预算时只输出已完成的分词结果.
+ * 每种保护触发的次数在进程内累计，用于监控.
+ */
+public enum LatencyGuard {
+
+    /**
+     * 歧义路径超过最大长度.
+     */
+    CROSS_PATH_LENGTH,
+
+    /**
+     * 候选方案超过最大个数.
+     */
+    CANDIDATE_PATHS,
+
+    /**
+     * 超出分词时间预算.
+     */
+    TIME_BUDGET;
+
+    private final AtomicLong count = new AtomicLong();
+
+    void fire() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return 触发次数.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 清零触发次数.
+     */
+    public void reset() {
+        count.set(0);
+    }
+}
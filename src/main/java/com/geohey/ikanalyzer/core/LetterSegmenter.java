@@ -147,7 +147,7 @@ class LetterSegmenter implements ISegmenter {
 				this.end = context.getCursor();
 			}else{
 				//遇到非Letter字符，输出词元
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , this.start , this.end - this.start + 1 , Lexeme.TYPE_LETTER);
+				Lexeme newLexeme = context.newLexeme(this.start , this.end - this.start + 1 , Lexeme.TYPE_LETTER);
 				context.addLexeme(newLexeme);
 				this.start = -1;
 				this.end = -1;
@@ -158,7 +158,7 @@ class LetterSegmenter implements ISegmenter {
 		if(context.isBufferConsumed()){
 			if(this.start != -1 && this.end != -1){
 				//缓冲以读完，输出词元
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , this.start , this.end - this.start + 1 , Lexeme.TYPE_LETTER);
+				Lexeme newLexeme = context.newLexeme(this.start , this.end - this.start + 1 , Lexeme.TYPE_LETTER);
 				context.addLexeme(newLexeme);
 				this.start = -1;
 				this.end = -1;
@@ -195,7 +195,7 @@ class LetterSegmenter implements ISegmenter {
 				this.englishEnd =  context.getCursor();
 			}else{
 				//遇到非English字符,输出词元
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , this.englishStart , this.englishEnd - this.englishStart + 1 , Lexeme.TYPE_ENGLISH);
+				Lexeme newLexeme = context.newLexeme(this.englishStart , this.englishEnd - this.englishStart + 1 , Lexeme.TYPE_ENGLISH);
 				context.addLexeme(newLexeme);
 				this.englishStart = -1;
 				this.englishEnd= -1;
@@ -206,7 +206,7 @@ class LetterSegmenter implements ISegmenter {
 		if(context.isBufferConsumed()){
 			if(this.englishStart != -1 && this.englishEnd != -1){
 				//缓冲以读完，输出词元
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , this.englishStart , this.englishEnd - this.englishStart + 1 , Lexeme.TYPE_ENGLISH);
+				Lexeme newLexeme = context.newLexeme(this.englishStart , this.englishEnd - this.englishStart + 1 , Lexeme.TYPE_ENGLISH);
 				context.addLexeme(newLexeme);
 				this.englishStart = -1;
 				this.englishEnd= -1;
@@ -246,7 +246,7 @@ class LetterSegmenter implements ISegmenter {
 				//不输出数字，但不标记结束
 			}else{
 				////遇到非Arabic字符,输出词元
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() , this.arabicStart , this.arabicEnd - this.arabicStart + 1 , Lexeme.TYPE_ARABIC);
+				Lexeme newLexeme = context.newLexeme(this.arabicStart , this.arabicEnd - this.arabicStart + 1 , Lexeme.TYPE_ARABIC);
 				context.addLexeme(newLexeme);
 				this.arabicStart = -1;
 				this.arabicEnd = -1;
@@ -257,7 +257,7 @@ class LetterSegmenter implements ISegmenter {
 		if(context.isBufferConsumed()){
 			if(this.arabicStart != -1 && this.arabicEnd != -1){
 				//生成已切分的词元
-				Lexeme newLexeme = new Lexeme(context.getBufferOffset() ,  this.arabicStart , this.arabicEnd - this.arabicStart + 1 , Lexeme.TYPE_ARABIC);
+				Lexeme newLexeme = context.newLexeme(this.arabicStart , this.arabicEnd - this.arabicStart + 1 , Lexeme.TYPE_ARABIC);
 				context.addLexeme(newLexeme);
 				this.arabicStart = -1;
 				this.arabicEnd = -1;
@@ -274,6 +274,15 @@ class LetterSegmenter implements ISegmenter {
 		return needLock;		
 	}	
 
+	/**
+	 * 判断是否是字母或数字的连接符号，连接符号可能出现在词元中间
+	 * @param input
+	 * @return
+	 */
+	static boolean isConnector(char input){
+		return Arrays.binarySearch(Letter_Connector, input) >= 0 || Arrays.binarySearch(Num_Connector, input) >= 0;
+	}
+
 	/**
 	 * 判断是否是字母连接符号
 	 * @param input
@@ -83,6 +83,17 @@ public class Lexeme {
         this.lexemeType = lexemeType;
     }
 
+    /**
+     * 复用词元对象，重新设置全部属性.
+     */
+    void reset(int offset, int begin, int length, int lexemeType) {
+        this.offset = offset;
+        this.begin = begin;
+        this.length = length;
+        this.lexemeType = lexemeType;
+        this.lexemeText = null;
+    }
+
     public int getOffset() {
         return offset;
     }
@@ -163,11 +163,8 @@ public class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
      */
     public int getXWeight() {
         int product = 1;
-        Cell cell = this.getHead();
-
-        while (cell != null && cell.getLexeme() != null) {
-            product *= cell.getLexeme().getLength();
-            cell = cell.getNext();
+        for (int i = 0, size = this.size(); i < size; i++) {
+            product *= this.getLength(i);
         }
 
         return product;
@@ -178,13 +175,8 @@ public class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
      */
     public int getPWeight() {
         int pWeight = 0;
-        int p = 0;
-        Cell cell = this.getHead();
-
-        while (cell != null && cell.getLexeme() != null) {
-            p++;
-            pWeight += (p * cell.getLexeme().getLength());
-            cell = cell.getNext();
+        for (int i = 0, size = this.size(); i < size; i++) {
+            pWeight += ((i + 1) * this.getLength(i));
         }
 
         return pWeight;
@@ -199,12 +191,7 @@ public class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
         theCopy.pathBegin = this.pathBegin;
         theCopy.pathEnd = this.pathEnd;
         theCopy.payloadLength = this.payloadLength;
-
-        Cell cell = this.getHead();
-        while (cell != null && cell.getLexeme() != null) {
-            theCopy.addLexeme(cell.getLexeme());
-            cell = cell.getNext();
-        }
+        this.copyTo(theCopy);
 
         return theCopy;
     }
@@ -271,12 +258,10 @@ public class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
                   .append(payloadLength)
                   .append("\r\n");
 
-        Cell head = this.getHead();
-        while (head != null) {
+        for (int i = 0; i < this.size(); i++) {
             strBuilder.append("lexeme : ")
-                      .append(head.getLexeme())
+                      .append(this.get(i))
                       .append("\r\n");
-            head = head.getNext();
         }
 
         return strBuilder.toString();
@@ -24,140 +24,129 @@ package com.geohey.ikanalyzer.core;
  *
  */
 
+import java.util.Arrays;
+
 /**
- * IK分词器专用的Lexeme快速排序集合.
+ * IK分词器专用的Lexeme快速排序集合. <br/>
+ * 按{@link Lexeme#compareTo(Lexeme)}排序，不含位置和长度都相同的词元.
+ * 词元按列存放: 由起始位置和长度组成的排序键存放在long数组中，比较时不访问词元对象.
+ * 候选词元基本按位置顺序到达，多数直接追加到尾部，少数从尾部向前查找插入位置.
  *
  * @author Jingyi Yu.
  * @author Liangyi Lin.
  */
 class QuickSortSet {
-    //链表头
-    private Cell head;
-    //链表尾
-    private Cell tail;
-    //链表的实际大小
-    private int size;
+
+    //数组的初始容量
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final long[] EMPTY_KEYS = new long[0];
+
+    private static final Lexeme[] EMPTY_LEXEMES = new Lexeme[0];
+
+    //排序键，高32位为起始位置，低32位为长度取反，起始位置小、长度大的在前
+    private long[] keys;
+    //排序键对应的词元
+    private Lexeme[] lexemes;
+    //第一个元素的下标
+    private int first;
+    //最后一个元素之后的下标
+    private int last;
 
     QuickSortSet(){
-        this.size = 0;
+        this.keys = EMPTY_KEYS;
+        this.lexemes = EMPTY_LEXEMES;
     }
 
     /**
-     * 向链表集合添加词元
+     * 向集合添加词元
      * @param lexeme
+     * @return 词元与集合中的词元重复时返回false
      */
     boolean addLexeme(Lexeme lexeme){
-        Cell newCell = new Cell(lexeme);
-        if(this.size == 0){
-            this.head = newCell;
-            this.tail = newCell;
-            this.size++;
-            return true;
+        if(lexeme == null){
+            throw new IllegalArgumentException("lexeme must not be null");
+        }
 
-        }else{
-            if(this.tail.compareTo(newCell) == 0){//词元与尾部词元相同，不放入集合
-                return false;
+        long key = keyOf(lexeme);
+        if(this.first == this.last){
+            this.first = 0;
+            this.last = 0;
+            this.insert(0 , key , lexeme);
+            return true;
+        }
 
-            }else if(this.tail.compareTo(newCell) < 0){//词元接入链表尾部
-                this.tail.next = newCell;
-                newCell.prev = this.tail;
-                this.tail = newCell;
-                this.size++;
-                return true;
+        long tailKey = this.keys[this.last - 1];
+        if(key > tailKey){//词元接入尾部
+            this.insert(this.last , key , lexeme);
+            return true;
 
-            }else if(this.head.compareTo(newCell) > 0){//词元接入链表头部
-                this.head.prev = newCell;
-                newCell.next = this.head;
-                this.head = newCell;
-                this.size++;
-                return true;
+        }else if(key == tailKey){//词元与尾部词元相同，不放入集合
+            return false;
 
+        }else if(key < this.keys[this.first]){//词元接入头部
+            if(this.first > 0){
+                this.first--;
+                this.keys[this.first] = key;
+                this.lexemes[this.first] = lexeme;
             }else{
-                //从尾部上逆
-                Cell index = this.tail;
-                while(index != null && index.compareTo(newCell) > 0){
-                    index = index.prev;
-                }
-                if(index.compareTo(newCell) == 0){//词元与集合中的词元重复，不放入集合
-                    return false;
-
-                }else if(index.compareTo(newCell) < 0){//词元插入链表中的某个位置
-                    newCell.prev = index;
-                    newCell.next = index.next;
-                    index.next.prev = newCell;
-                    index.next = newCell;
-                    this.size++;
-                    return true;
-                }
+                this.insert(this.first , key , lexeme);
             }
+            return true;
         }
-        return false;
+
+        //从尾部上逆，头部的键不大于key，一定会停下
+        int index = this.last - 1;
+        while(this.keys[index] > key){
+            index--;
+        }
+        if(this.keys[index] == key){//词元与集合中的词元重复，不放入集合
+            return false;
+        }
+        this.insert(index + 1 , key , lexeme);
+        return true;
     }
 
     /**
-     * 返回链表头部元素
+     * 返回集合的第一个元素
      * @return
      */
     Lexeme peekFirst(){
-        if(this.head != null){
-            return this.head.lexeme;
-        }
-        return null;
+        return this.first < this.last ? this.lexemes[this.first] : null;
     }
 
     /**
-     * 取出链表集合的第一个元素
+     * 取出集合的第一个元素
      * @return Lexeme
      */
     Lexeme pollFirst(){
-        if(this.size == 1){
-            Lexeme first = this.head.lexeme;
-            this.head = null;
-            this.tail = null;
-            this.size--;
-            return first;
-        }else if(this.size > 1){
-            Lexeme first = this.head.lexeme;
-            this.head = this.head.next;
-            this.size --;
-            return first;
-        }else{
+        if(this.first == this.last){
             return null;
         }
+        Lexeme lexeme = this.lexemes[this.first];
+        this.lexemes[this.first++] = null;
+        return lexeme;
     }
 
     /**
-     * 返回链表尾部元素
+     * 返回集合的最后一个元素
      * @return
      */
     Lexeme peekLast(){
-        if(this.tail != null){
-            return this.tail.lexeme;
-        }
-        return null;
+        return this.first < this.last ? this.lexemes[this.last - 1] : null;
     }
 
     /**
-     * 取出链表集合的最后一个元素
+     * 取出集合的最后一个元素
      * @return Lexeme
      */
     Lexeme pollLast(){
-        if(this.size == 1){
-            Lexeme last = this.head.lexeme;
-            this.head = null;
-            this.tail = null;
-            this.size--;
-            return last;
-
-        }else if(this.size > 1){
-            Lexeme last = this.tail.lexeme;
-            this.tail = this.tail.prev;
-            this.size--;
-            return last;
-
-        }else{
+        if(this.first == this.last){
             return null;
         }
+        Lexeme lexeme = this.lexemes[--this.last];
+        this.lexemes[this.last] = null;
+        return lexeme;
     }
 
     /**
@@ -165,7 +154,7 @@ class QuickSortSet {
      * @return
      */
     int size(){
-        return this.size;
+        return this.last - this.first;
     }
 
     /**
@@ -173,44 +162,91 @@ class QuickSortSet {
      * @return
      */
     boolean isEmpty(){
-        return this.size == 0;
+        return this.first == this.last;
     }
 
     /**
-     * 返回lexeme链的头部
+     * 清空集合，保留已分配的数组
+     */
+    void clear(){
+        Arrays.fill(this.lexemes , this.first , this.last , null);
+        this.first = 0;
+        this.last = 0;
+    }
+
+    /**
+     * 返回集合中的第index个元素
+     * @param index
      * @return
      */
-    Cell getHead(){
-        return this.head;
+    Lexeme get(int index){
+        return this.lexemes[this.first + index];
     }
 
-    class Cell implements Comparable<Cell>{
-        private Cell prev;
-        private Cell next;
-        private Lexeme lexeme;
+    /**
+     * 返回集合中第index个元素的起始位置，不访问词元对象
+     * @param index
+     * @return
+     */
+    int getBegin(int index){
+        return (int) (this.keys[this.first + index] >> 32);
+    }
 
-        Cell(Lexeme lexeme){
-            if(lexeme == null){
-                throw new IllegalArgumentException("lexeme must not be null");
-            }
-            this.lexeme = lexeme;
-        }
+    /**
+     * 返回集合中第index个元素的长度，不访问词元对象
+     * @param index
+     * @return
+     */
+    int getLength(int index){
+        return ~(int) this.keys[this.first + index];
+    }
 
-        public int compareTo(Cell o) {
-            return this.lexeme.compareTo(o.lexeme);
-        }
+    /**
+     * 将全部元素复制到空集合中
+     * @param other
+     */
+    void copyTo(QuickSortSet other){
+        other.keys = Arrays.copyOfRange(this.keys , this.first , this.last);
+        other.lexemes = Arrays.copyOfRange(this.lexemes , this.first , this.last);
+        other.first = 0;
+        other.last = this.last - this.first;
+    }
 
-        public Cell getPrev(){
-            return this.prev;
+    /**
+     * 在position处插入元素，position及之后的元素后移
+     */
+    private void insert(int position , long key , Lexeme lexeme){
+        if(this.last == this.keys.length){
+            if(this.first > 0){
+                //头部有空位，整体前移
+                int size = this.last - this.first;
+                System.arraycopy(this.keys , this.first , this.keys , 0 , size);
+                System.arraycopy(this.lexemes , this.first , this.lexemes , 0 , size);
+                Arrays.fill(this.lexemes , size , this.last , null);
+                position -= this.first;
+                this.first = 0;
+                this.last = size;
+            }else{
+                int capacity = Math.max(INITIAL_CAPACITY , this.keys.length * 2);
+                this.keys = Arrays.copyOf(this.keys , capacity);
+                this.lexemes = Arrays.copyOf(this.lexemes , capacity);
+            }
         }
 
-        public Cell getNext(){
-            return this.next;
+        //插入位置多在尾部附近，逐个后移
+        for(int i = this.last ; i > position ; i--){
+            this.keys[i] = this.keys[i - 1];
+            this.lexemes[i] = this.lexemes[i - 1];
         }
+        this.keys[position] = key;
+        this.lexemes[position] = lexeme;
+        this.last++;
+    }
 
-        public Lexeme getLexeme(){
-            return this.lexeme;
-        }
+    /**
+     * 词元的排序键，键的大小顺序与{@link Lexeme#compareTo(Lexeme)}一致，键相等即词元相同
+     */
+    private static long keyOf(Lexeme lexeme){
+        return ((long) lexeme.getBegin() << 32) | (~lexeme.getLength() & 0xFFFFFFFFL);
     }
 }
-
@@ -0,0 +1,285 @@
+package com.geohey.ikanalyzer.core;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import com.geohey.ikanalyzer.dic.DictVersion;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分词结果缓存.
+ * 查询时反复出现的短文本直接返回缓存的分词结果. 按文本和是否智能分词缓存，条目数和估算的内存占用超出上限时按LRU淘汰；
+ * 缓存的结果属于计算时的词典版本，词典通过updateWords、disableWords或重新加载发布新版本后，缓存自动失效.
+ * 实例是线程安全的，分词在锁外进行.
+ */
+public final class SegmentCache {
+
+    /**
+     * 分词器池，决定使用的配置和词典.
+     */
+    private final SegmenterPool pool;
+
+    /**
+     * 最多缓存的条目数.
+     */
+    private final int maxEntries;
+
+    /**
+     * 缓存估算占用的最大字节数.
+     */
+    private final long maxBytes;
+
+    /**
+     * 按访问顺序排列的缓存，最久未访问的在前.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 当前缓存条目所属的词典版本.
+     */
+    private DictVersion version;
+
+    /**
+     * 当前缓存估算占用的字节数.
+     */
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param pool 分词器池，决定使用的配置和词典
+     * @param maxEntries 最多缓存的条目数
+     * @param maxBytes 缓存估算占用的最大字节数
+     */
+    public SegmentCache(SegmenterPool pool, int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("maxEntries and maxBytes must be positive: " + maxEntries + ", " + maxBytes);
+        }
+        this.pool = pool;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 分词，命中缓存时直接返回缓存的结果.
+     * @param text 文本
+     * @param useSmart 为true，使用智能分词策略
+     * @return 分词结果，不可修改
+     */
+    public List<String> splitWords(String text, boolean useSmart) {
+        DictVersion current = this.pool.getDictionary().snapshot();
+        Key key = new Key(text, useSmart);
+        synchronized (this) {
+            if (current != this.version) {
+                //词典已发布新版本，缓存的结果全部失效
+                if (!this.entries.isEmpty()) {
+                    this.entries.clear();
+                    this.invalidations.incrementAndGet();
+                }
+                this.bytes = 0;
+                this.version = current;
+            }
+            Entry entry = this.entries.get(key);
+            if (entry != null && entry.version == current) {
+                this.hits.incrementAndGet();
+                return entry.words;
+            }
+        }
+        this.misses.incrementAndGet();
+
+        List<String> words = this.segment(text, useSmart);
+        Entry entry = new Entry(current, words, estimate(text, words));
+        if (entry.bytes <= this.maxBytes) {
+            synchronized (this) {
+                if (current == this.version) {
+                    Entry old = this.entries.put(key, entry);
+                    if (old != null) {
+                        this.bytes -= old.bytes;
+                    }
+                    this.bytes += entry.bytes;
+                    this.evict();
+                }
+            }
+        }
+        return words;
+    }
+
+    private List<String> segment(String text, boolean useSmart) {
+        IKSegmenter ik = this.pool.acquire(new StringReader(text), useSmart);
+        try {
+            List<String> words = new ArrayList<>();
+            Lexeme lexeme;
+            while ((lexeme = ik.next()) != null) {
+                words.add(lexeme.getLexemeText());
+            }
+            return Collections.unmodifiableList(words);
+        } catch (IOException e) {
+            //文本来自StringReader，不会出现IO异常
+            throw new IllegalStateException(e);
+        } finally {
+            this.pool.release(ik);
+        }
+    }
+
+    /**
+     * 淘汰最久未访问的条目，直到条目数和字节数都不超过上限
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = this.entries.entrySet().iterator();
+        while ((this.entries.size() > this.maxEntries || this.bytes > this.maxBytes) && iterator.hasNext()) {
+            this.bytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 估算一个条目占用的字节数：文本和各个词的字符，加上对象头和引用的近似开销
+     */
+    private static long estimate(String text, List<String> words) {
+        long bytes = 96 + 2L * text.length();
+        for (String word : words) {
+            bytes += 48 + 2L * word.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * 清空缓存.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    /**
+     * @return 缓存的条目数.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return 缓存估算占用的字节数.
+     */
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * @return 命中次数.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return 未命中次数.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return 超出上限被淘汰的条目数.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * @return 词典发布新版本导致缓存失效的次数.
+     */
+    public long getInvalidations() {
+        return this.invalidations.get();
+    }
+
+    /**
+     * @return 命中率，没有访问时为0.
+     */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long total = hits + this.misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 缓存键.
+     */
+    private static final class Key {
+
+        private final String text;
+        private final boolean useSmart;
+
+        Key(String text, boolean useSmart) {
+            this.text = text;
+            this.useSmart = useSmart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return this.useSmart == key.useSmart && this.text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.text.hashCode() * 31 + (this.useSmart ? 1 : 0);
+        }
+    }
+
+    /**
+     * 缓存条目.
+     */
+    private static final class Entry {
+
+        private final DictVersion version;
+        private final List<String> words;
+        private final long bytes;
+
+        Entry(DictVersion version, List<String> words, long bytes) {
+            this.version = version;
+            this.words = words;
+            this.bytes = bytes;
+        }
+    }
+}
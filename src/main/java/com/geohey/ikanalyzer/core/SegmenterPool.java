@@ -0,0 +1,112 @@
+package com.geohey.ikanalyzer.core;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import com.geohey.ikanalyzer.cfg.Configuration;
+import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.dic.IDictionary;
+
+import java.io.Reader;
+
+/**
+ * 按线程复用的分词器池.
+ * 每个线程为智能分词和细粒度分词各缓存一个分词器，通过{@link IKSegmenter#reset(Reader)}复用已分配的上下文，
+ * 适合大量短文本的分词. 分词器只在获取它的线程内使用，用完后调用{@link #release(IKSegmenter)}归还.
+ */
+public final class SegmenterPool {
+
+    /**
+     * 分词器配置项.
+     */
+    private final Configuration cfg;
+
+    /**
+     * 词典.
+     */
+    private final IDictionary dictionary;
+
+    /**
+     * 当前线程缓存的分词器，下标0为细粒度分词，1为智能分词. 分词器被取出时对应位置为null.
+     */
+    private final ThreadLocal<IKSegmenter[]> segmenters = new ThreadLocal<IKSegmenter[]>() {
+        @Override
+        protected IKSegmenter[] initialValue() {
+            return new IKSegmenter[2];
+        }
+    };
+
+    /**
+     * 使用词典单例的分词器池
+     * @param cfg 配置
+     */
+    public SegmenterPool(Configuration cfg) {
+        this(cfg, Dictionary.initial(cfg));
+    }
+
+    /**
+     * @param cfg 配置
+     * @param dictionary 使用的词典，由{@link Dictionary#open(Configuration)}创建
+     */
+    public SegmenterPool(Configuration cfg, IDictionary dictionary) {
+        this.cfg = cfg;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return 分词使用的词典
+     */
+    public IDictionary getDictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * 获取当前线程缓存的分词器，并重置为对input分词.
+     * 当前线程的分词器尚未归还时(如嵌套使用)，新建一个分词器.
+     * @param input
+     * @param useSmart 为true，使用智能分词策略
+     * @return 分词器
+     */
+    public IKSegmenter acquire(Reader input, boolean useSmart) {
+        IKSegmenter[] cached = this.segmenters.get();
+        int slot = useSmart ? 1 : 0;
+        IKSegmenter segmenter = cached[slot];
+        if (segmenter == null) {
+            return new IKSegmenter(input, this.cfg, this.dictionary, useSmart);
+        }
+        cached[slot] = null;
+        segmenter.reset(input);
+        return segmenter;
+    }
+
+    /**
+     * 归还分词器到当前线程，归还后不能再使用.
+     * @param segmenter 由{@link #acquire(Reader, boolean)}获取的分词器
+     */
+    public void release(IKSegmenter segmenter) {
+        //不再引用已分词的文本
+        segmenter.reset(null);
+        this.segmenters.get()[segmenter.useSmart() ? 1 : 0] = segmenter;
+    }
+}
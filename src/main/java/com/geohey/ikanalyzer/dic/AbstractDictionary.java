@@ -25,17 +25,34 @@ package com.geohey.ikanalyzer.dic;
  */
 
 import com.geohey.ikanalyzer.cfg.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * 词库操作的抽象类.
+ * 词库操作的抽象类. <br/>
+ * 词典文件先加载为{@link DictSegment}词典树，再根据{@link Configuration#getDictEngine()}生成检索结构:
+ * 对象树引擎直接使用词典树检索，双数组引擎将词典树编译为{@link DoubleArrayTrie}后释放词典树.
+ * 配置了词典快照时，双数组引擎和内存映射引擎优先从快照加载，内存映射引擎的词典数组不占用堆内存.
+ * 检索结构以不可变的{@link DictVersion}发布，词条更新生成新版本后替换，正在分词的线程继续使用原版本.
+ * 词典文件变化后由{@link #reload(boolean, boolean)}重建受影响的词典，通过{@link #updateWords}做的修改在重建后保留.
+ * 共享的词典实例从{@link DictCache}获取初始的检索结构，来源相同的实例只加载一次，实例用完后通过{@link #close()}释放.
  *
  * @author Jingyi Yu.
  * @author Liangyi Lin.
  */
 public abstract class AbstractDictionary implements IDictionary {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractDictionary.class);
+
     /**
      * 主词典对象.
      */
@@ -51,75 +68,453 @@ public abstract class AbstractDictionary implements IDictionary {
      */
     protected DictSegment _StopWordDict;
 
+    /**
+     * 当前发布的词典版本，更新时整体替换.
+     */
+    protected volatile DictVersion current;
+
+    /**
+     * 最近一次加载词典文件读入的词条数，由加载方法累加.
+     */
+    protected int loadedWords;
+
+    /**
+     * 是否正在重新加载词典文件. 初始化时文件系统中的词典缺失或读取失败视为空词典，重新加载时抛出异常.
+     */
+    protected boolean reloading;
+
+    /**
+     * 通过{@link #updateWords}做的修改，按词条合并，后做的修改覆盖先做的. true为加载，false为屏蔽.
+     * 只在配置了文件系统中的词典，即词典可能重新加载时记录，重建主词典后重放.
+     */
+    private final Map<String, Boolean> updates = new LinkedHashMap<>();
+
+    /**
+     * 串行化词典文件的重新加载.
+     */
+    private final Object reloadLock = new Object();
+
+    /**
+     * 从{@link DictCache}引用的主词典、量词词典、停止词词典的来源，未共享或已关闭时为null.
+     */
+    private String[] sharedKeys;
+
+    /**
+     * 监视文件系统词典的后台线程.
+     */
+    private DictReloader reloader;
+
     protected Configuration cfg;
 
     public AbstractDictionary(Configuration cfg) {
+        this(cfg, true, true);
+    }
+
+    /**
+     * @param cfg 配置.
+     * @param useSnapshot 是否优先加载预编译的词典快照.
+     */
+    protected AbstractDictionary(Configuration cfg, boolean useSnapshot) {
+        this(cfg, useSnapshot, false);
+    }
+
+    /**
+     * @param cfg 配置.
+     * @param useSnapshot 是否优先加载预编译的词典快照.
+     * @param shared 是否与来源相同的其他词典实例共享检索结构.
+     */
+    protected AbstractDictionary(Configuration cfg, boolean useSnapshot, boolean shared) {
         this.cfg = cfg;
-        this.loadMainDict();
-        this.loadQuantifierDict();
-        this.loadExtDict();
-        this.loadStopWordDict();
+        if (!shared) {
+            this.current = this.load(useSnapshot, true, true, true);
+            return;
+        }
+
+        String[] keys = {
+            this.cacheKey("main", cfg.getMainDictionary(), cfg.getExtDictionarys(), cfg.getExtDictionaryFiles()),
+            this.cacheKey("quantifier", cfg.getQuantifierDictionay(), new ArrayList<String>(0), new ArrayList<String>(0)),
+            this.cacheKey("stopword", "", cfg.getExtStopWordDictionarys(), cfg.getExtStopWordDictionaryFiles())
+        };
+
+        // 持有缓存的锁加载，同一来源只加载一次
+        synchronized (DictCache.class) {
+            DictTrie[] tries = new DictTrie[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                tries[i] = DictCache.acquire(keys[i]);
+            }
+
+            if (tries[0] == null || tries[1] == null || tries[2] == null) {
+                DictVersion loaded = this.load(useSnapshot, tries[0] == null, tries[1] == null, tries[2] == null);
+                DictTrie[] loadedTries = {loaded.mainTrie, loaded.quantifierTrie, loaded.stopWordTrie};
+                for (int i = 0; i < keys.length; i++) {
+                    if (tries[i] == null) {
+                        tries[i] = DictCache.register(keys[i], loadedTries[i]);
+                    }
+                }
+            } else {
+                LOGGER.info("共享已加载的词典");
+            }
+
+            this.current = new DictVersion(1, tries[0], tries[1], tries[2]);
+            this.sharedKeys = keys;
+        }
+    }
+
+    /**
+     * 加载词典，优先使用快照. 没有可用的快照时只加载指定的词典，未加载的词典在返回的版本中为null.
+     */
+    private DictVersion load(boolean useSnapshot, boolean mainDict, boolean quantifierDict, boolean stopWordDict) {
+        if (useSnapshot) {
+            DictVersion snapshot = this.loadSnapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+
+        try {
+            if (mainDict) {
+                this.loadMainDict();
+                this.loadExtDict();
+            }
+            if (quantifierDict) {
+                this.loadQuantifierDict();
+            }
+            if (stopWordDict) {
+                this.loadStopWordDict();
+            }
+        } catch (IOException e) {
+            // 初始化时不抛出，见reloading
+            throw new IllegalStateException(e);
+        }
+        return this.compileDict();
+    }
+
+    /**
+     * 检索结构的来源: 词典类、引擎和各词典文件. 文件系统中的词典还包括修改时间和大小，文件变化后不再共享.
+     */
+    private String cacheKey(String name, String dict, List<String> resources, List<String> files) {
+        StringBuilder key = new StringBuilder(this.getClass().getName());
+        key.append('|').append(cfg.getDictEngine()).append('|').append(name).append('|').append(dict);
+        for (String resource : resources) {
+            key.append('|').append(resource);
+        }
+        for (String path : files) {
+            File file = new File(path);
+            key.append('|').append(file.getAbsolutePath())
+               .append('@').append(file.lastModified()).append(',').append(file.length());
+        }
+        return key.toString();
+    }
+
+    /**
+     * 配置了文件系统中的词典时，启动{@link DictReloader}监视词典文件.
+     */
+    protected void startReloader() {
+        if (!this.isReloadable()) {
+            return;
+        }
+
+        try {
+            DictReloader watcher = new DictReloader(this, cfg);
+            watcher.start();
+            synchronized (this) {
+                reloader = watcher;
+            }
+        } catch (IOException e) {
+            LOGGER.error("监视扩展词典文件异常，词典文件变化后不会重新加载, {}", e);
+        }
+    }
+
+    /**
+     * @return 是否配置了文件系统中的词典，只有这些词典会重新加载.
+     */
+    private boolean isReloadable() {
+        return !cfg.getExtDictionaryFiles().isEmpty() || !cfg.getExtStopWordDictionaryFiles().isEmpty();
     }
 
     @Override
-    public void addWords(Collection<String> words) {
+    public synchronized DictReloader getReloader() {
+        return reloader;
+    }
 
-        if (words != null || words.size() <= 0) {
-            return ;
+    @Override
+    public void close() {
+        String[] keys;
+        DictReloader watcher;
+        synchronized (this) {
+            keys = sharedKeys;
+            watcher = reloader;
+            sharedKeys = null;
+            reloader = null;
         }
 
-        for (String word : words) {
-            if (word != null) {
-                char[] chs = word.trim().toLowerCase().toCharArray();
-                _MainDict.fillSegment(chs);
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                LOGGER.warn("停止监视词典文件异常, {}", e);
             }
         }
+        if (keys != null) {
+            for (String key : keys) {
+                DictCache.release(key);
+            }
+        }
+    }
+
+    @Override
+    public void addWords(Collection<String> words) {
+        this.updateWords(words, null);
     }
 
     @Override
     public void disableWords(Collection<String> words) {
+        this.updateWords(null, words);
+    }
 
-        if (words != null || words.size() <= 0) {
+    @Override
+    public synchronized void updateWords(Collection<String> addedWords, Collection<String> disabledWords) {
+        List<char[]> added = toCharArrays(addedWords);
+        List<char[]> disabled = toCharArrays(disabledWords);
+        if (added.isEmpty() && disabled.isEmpty()) {
             return ;
         }
 
-        for (String word : words) {
-            if (word != null) {
-                char[] chs = word.trim().toLowerCase().toCharArray();
-                _MainDict.disableSegment(chs);
+        long begin = System.currentTimeMillis();
+        DictVersion version = current.update(added, disabled);
+        current = version;
+        if (this.isReloadable()) {
+            for (char[] word : added) {
+                updates.put(new String(word), Boolean.TRUE);
+            }
+            for (char[] word : disabled) {
+                updates.put(new String(word), Boolean.FALSE);
             }
         }
+
+        LOGGER.info("发布词典版本：{}，加载词条：{}，屏蔽词条：{}，耗时：{}ms",
+                    version.getVersion(), added.size(), disabled.size(), System.currentTimeMillis() - begin);
+    }
+
+    @Override
+    public DictVersion snapshot() {
+        return current;
     }
 
     @Override
     public Hit matchInMainDict(char[] charArray) {
-        return _MainDict.match(charArray);
+        return current.matchInMainDict(charArray);
     }
 
     @Override
     public Hit matchInMainDict(char[] charArray, int begin, int length) {
-        return _MainDict.match(charArray, begin, length);
+        return current.matchInMainDict(charArray, begin, length);
     }
 
     @Override
     public Hit matchInQuantifierDict(char[] charArray, int begin, int length) {
-        return _QuantifierDict.match(charArray, begin, length);
+        return current.matchInQuantifierDict(charArray, begin, length);
     }
 
     @Override
     public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
-        DictSegment ds = matchedHit.getMatchedDictSegment();
-        return ds.match(charArray, currentIndex, 1, matchedHit);
+        return current.matchWithHit(charArray, currentIndex, matchedHit);
     }
 
     @Override
     public boolean isStopWord(char[] charArray) {
-        return _StopWordDict.match(charArray).isMatch();
+        return current.isStopWord(charArray);
     }
 
     @Override
     public boolean isStopWord(char[] charArray, int begin, int length) {
-        return _StopWordDict.match(charArray, begin, length).isMatch();
+        return current.isStopWord(charArray, begin, length);
+    }
+
+    @Override
+    public DictAutomaton getMainAutomaton() {
+        return current.getMainAutomaton();
+    }
+
+    /**
+     * 重新加载词典文件，重建主词典(含扩展词典)和/或停止词词典后发布新版本.
+     * 重建在调用线程上进行，期间分词和词条更新不受影响；重建开始后通过{@link #updateWords}做的修改在发布前补上.
+     * @param mainDict 是否重建主词典.
+     * @param stopWordDict 是否重建停止词词典.
+     * @return 重新加载的结果.
+     * @throws IOException 词典文件缺失或读取失败，当前版本不变.
+     */
+    public DictReloadEvent reload(boolean mainDict, boolean stopWordDict) throws IOException {
+        synchronized (reloadLock) {
+            reloading = true;
+            try {
+                return this.rebuild(mainDict, stopWordDict);
+            } finally {
+                reloading = false;
+            }
+        }
+    }
+
+    /**
+     * 持有reloadLock时重建词典并发布新版本.
+     */
+    private DictReloadEvent rebuild(boolean mainDict, boolean stopWordDict) throws IOException {
+        long begin = System.currentTimeMillis();
+
+        Map<String, Boolean> replayed;
+        synchronized (this) {
+            replayed = new HashMap<>(updates);
+        }
+
+        DictTrie mainTrie = null;
+        int mainWords = 0;
+        if (mainDict) {
+            loadedWords = 0;
+            _MainDict = null;
+            this.loadMainDict();
+            this.loadExtDict();
+            mainWords = loadedWords;
+            for (Map.Entry<String, Boolean> update : replayed.entrySet()) {
+                if (update.getValue()) {
+                    _MainDict.fillSegment(update.getKey().toCharArray());
+                } else {
+                    _MainDict.disableSegment(update.getKey().toCharArray());
+                }
+            }
+            mainTrie = this.toTrie(_MainDict);
+        }
+
+        DictTrie stopWordTrie = null;
+        int stopWords = 0;
+        if (stopWordDict) {
+            loadedWords = 0;
+            _StopWordDict = null;
+            this.loadStopWordDict();
+            stopWords = loadedWords;
+            stopWordTrie = this.toTrie(_StopWordDict);
+        }
+
+        if (this.isDoubleArrayEngine(cfg.getDictEngine())) {
+            _MainDict = null;
+            _StopWordDict = null;
+        }
+
+        DictVersion version;
+        synchronized (this) {
+            version = current.replace(mainTrie, stopWordTrie);
+            if (mainDict) {
+                // 补上重建期间的修改
+                List<char[]> added = new ArrayList<>();
+                List<char[]> disabled = new ArrayList<>();
+                for (Map.Entry<String, Boolean> update : updates.entrySet()) {
+                    if (update.getValue().equals(replayed.get(update.getKey()))) {
+                        continue;
+                    }
+                    if (update.getValue()) {
+                        added.add(update.getKey().toCharArray());
+                    } else {
+                        disabled.add(update.getKey().toCharArray());
+                    }
+                }
+                if (!added.isEmpty() || !disabled.isEmpty()) {
+                    version = version.update(added, disabled);
+                }
+            }
+            current = version;
+        }
+
+        long elapsed = System.currentTimeMillis() - begin;
+        LOGGER.info("重新加载词典完成，版本：{}，主词典词条：{}，停止词条：{}，耗时：{}ms",
+                    version.getVersion(), mainWords, stopWords, elapsed);
+        return new DictReloadEvent(version.getVersion(), mainDict, stopWordDict, mainWords, stopWords, elapsed);
+    }
+
+    /**
+     * 加载配置的词典快照. 双数组引擎将快照读入堆内，内存映射引擎直接映射快照文件.
+     * 对象树引擎不使用快照，快照缺失、损坏或与词典文件不一致时返回null.
+     * @return 快照中的词典.
+     */
+    protected DictVersion loadSnapshot() {
+        String key = cfg.getDictSnapshot();
+        String engine = cfg.getDictEngine();
+        if (key == null || !this.isDoubleArrayEngine(engine)) {
+            return null;
+        }
+
+        long begin = System.currentTimeMillis();
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        try {
+            DictSnapshot snapshot = Configuration.DICT_ENGINE_MAPPED.equals(engine)
+                                    ? DictSnapshot.map(key)
+                                    : DictSnapshot.read(key, classLoader);
+            if (snapshot == null) {
+                LOGGER.info("未找到词典快照 {}，加载文本词典", key);
+                return null;
+            }
+            if (snapshot.fingerprint != DictSnapshot.fingerprint(cfg, classLoader)) {
+                LOGGER.warn("词典快照 {} 与词典文件不一致，加载文本词典", key);
+                return null;
+            }
+
+            LOGGER.info("加载词典快照 {} 完成，引擎：{}，耗时：{}ms", key, engine, System.currentTimeMillis() - begin);
+            return new DictVersion(1, snapshot.mainTrie, snapshot.quantifierTrie, snapshot.stopWordTrie);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("读取词典快照 {} 异常，加载文本词典, {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据配置的词典引擎，由已加载的词典树生成检索结构.
+     * 内存映射引擎没有可用的快照时，使用堆内双数组.
+     * @return 词典版本，未加载的词典为null.
+     */
+    protected DictVersion compileDict() {
+        long begin = System.currentTimeMillis();
+        DictVersion version = new DictVersion(1, this.toTrie(_MainDict), this.toTrie(_QuantifierDict), this.toTrie(_StopWordDict));
+
+        if (this.isDoubleArrayEngine(cfg.getDictEngine())) {
+            // 双数组编译完成后不再需要词典树
+            _MainDict = null;
+            _QuantifierDict = null;
+            _StopWordDict = null;
+
+            LOGGER.info("编译双数组词典完成，耗时：{}ms", System.currentTimeMillis() - begin);
+        }
+        return version;
+    }
+
+    /**
+     * 根据配置的词典引擎，由词典树生成检索结构.
+     */
+    private DictTrie toTrie(DictSegment segment) {
+        if (segment == null) {
+            return null;
+        }
+        if (this.isDoubleArrayEngine(cfg.getDictEngine())) {
+            return DoubleArrayTrie.build(segment);
+        }
+        return segment;
+    }
+
+    private boolean isDoubleArrayEngine(String engine) {
+        return Configuration.DICT_ENGINE_DOUBLE_ARRAY.equals(engine) || Configuration.DICT_ENGINE_MAPPED.equals(engine);
+    }
+
+    /**
+     * 将词条规范化为小写字符数组.
+     */
+    static List<char[]> toCharArrays(Collection<String> words) {
+        if (words == null) {
+            return new ArrayList<>(0);
+        }
+        List<char[]> charArrays = new ArrayList<>(words.size());
+        for (String word : words) {
+            if (word != null && !"".equals(word.trim())) {
+                charArrays.add(word.trim().toLowerCase().toCharArray());
+            }
+        }
+        return charArrays;
     }
 
     /**
@@ -135,10 +530,10 @@ public abstract class AbstractDictionary implements IDictionary {
     /**
      * 加载用户配置的扩展词典到主词表.
      */
-    protected abstract void loadExtDict();
+    protected abstract void loadExtDict() throws IOException;
 
     /**
      * 加载用户扩展的停用词词典.
      */
-    protected abstract void loadStopWordDict();
+    protected abstract void loadStopWordDict() throws IOException;
 }
@@ -0,0 +1,267 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.Collection;
+
+/**
+ * 双数组(base/check)词典树的检索逻辑. <br/>
+ * 状态转移规则: t = base[s] + code(c)，当且仅当 check[t] == s 时，状态s经字符c转移到状态t.
+ * 根节点的下标为{@link #ROOT}，base[s] == 0 表示该节点没有子节点.
+ * <p>
+ * 编译时同时为每个节点生成Aho-Corasick自动机的失败链接(最长的、同时也是词典前缀的真后缀)
+ * 和输出链接(失败链上最近的成词节点)，作为{@link DictAutomaton}使用.
+ * </p>
+ * 子类决定数组的存储位置(堆内数组或内存映射文件)，检索过程中除返回的{@link Hit}外不创建对象.
+ */
+abstract class AbstractDoubleArrayTrie implements DictTrie, DictAutomaton {
+
+    /**
+     * check数组中空闲位置的标记.
+     */
+    static final int EMPTY = -1;
+
+    /**
+     * @return 字符的编码，0表示词典中没有该字符.
+     */
+    abstract int code(char c);
+
+    abstract int base(int state);
+
+    abstract int check(int state);
+
+    /**
+     * @return 该状态是否成词.
+     */
+    abstract boolean isWord(int state);
+
+    /**
+     * @return 双数组的长度.
+     */
+    abstract int capacity();
+
+    /**
+     * @return 失败链接.
+     */
+    abstract int fail(int state);
+
+    /**
+     * @return 输出链接，失败链上最近的成词节点，不存在时为{@link #ROOT}.
+     */
+    abstract int output(int state);
+
+    /**
+     * @return 节点深度，即从根节点到该节点的字符数.
+     */
+    abstract int depth(int state);
+
+    /**
+     * @return 该节点或其失败链上是否存在有子节点的节点(根节点除外).
+     */
+    abstract boolean isPrefixChain(int state);
+
+    @Override
+    public int next(int state, char c) {
+        int code = this.code(c);
+        if (code == 0) {
+            return ROOT;
+        }
+
+        int s = state;
+        while (true) {
+            int t = this.base(s) + code;
+            if (t < this.capacity() && this.check(t) == s) {
+                return t;
+            }
+            if (s == ROOT) {
+                return ROOT;
+            }
+            s = this.fail(s);
+        }
+    }
+
+    @Override
+    public int firstWord(int state) {
+        if (state != ROOT && this.isWord(state)) {
+            return state;
+        }
+        return this.output(state);
+    }
+
+    @Override
+    public int nextWord(int word) {
+        return this.output(word);
+    }
+
+    @Override
+    public int length(int word) {
+        return this.depth(word);
+    }
+
+    @Override
+    public boolean hasPrefix(int state) {
+        return state != ROOT && this.isPrefixChain(state);
+    }
+
+    @Override
+    public Hit match(char[] charArray) {
+        return this.match(charArray, 0, charArray.length);
+    }
+
+    @Override
+    public Hit match(char[] charArray, int begin, int length) {
+        Hit searchHit = new Hit();
+        searchHit.setBegin(begin);
+        return this.match(ROOT, charArray, begin, length, searchHit);
+    }
+
+    @Override
+    public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+        return this.match(matchedHit.getMatchedState(), charArray, currentIndex, 1, matchedHit);
+    }
+
+    @Override
+    public int matchChar(char c) {
+        int s = this.transition(ROOT, c);
+        if (s == EMPTY) {
+            return Hit.UNMATCH;
+        }
+        return (this.isWord(s) ? Hit.MATCH : Hit.UNMATCH) | (this.hasChildren(s) ? Hit.PREFIX : Hit.UNMATCH);
+    }
+
+    @Override
+    public boolean contains(char[] charArray, int begin, int length) {
+        if (length <= 0) {
+            return false;
+        }
+
+        int s = ROOT;
+        for (int i = begin; i < begin + length; i++) {
+            s = this.transition(s, charArray[i]);
+            if (s == EMPTY) {
+                return false;
+            }
+        }
+        return this.isWord(s);
+    }
+
+    /**
+     * 双数组不可修改，将词条还原为词典树，更新后重新编译为堆内双数组.
+     */
+    @Override
+    public DictTrie update(Collection<char[]> added, Collection<char[]> disabled) {
+        DictSegment root = this.toDictSegment();
+        for (char[] word : added) {
+            root.fillSegment(word);
+        }
+        for (char[] word : disabled) {
+            root.disableSegment(word);
+        }
+        return DoubleArrayTrie.build(root);
+    }
+
+    /**
+     * 从指定状态开始匹配词段，语义与{@link DictSegment#match(char[], int, int, Hit)}一致.
+     */
+    private Hit match(int state, char[] charArray, int begin, int length, Hit searchHit) {
+        searchHit.setUnmatch();
+        searchHit.setEnd(begin);
+
+        if (length <= 0) {
+            return searchHit;
+        }
+
+        int s = state;
+        for (int i = begin; i < begin + length; i++) {
+            searchHit.setEnd(i);
+            s = this.transition(s, charArray[i]);
+            if (s == EMPTY) {
+                return searchHit;
+            }
+        }
+
+        if (this.isWord(s)) {
+            searchHit.setMatch();
+        }
+        if (this.hasChildren(s)) {
+            searchHit.setPrefix();
+            searchHit.setMatchedState(this, s);
+        }
+        return searchHit;
+    }
+
+    /**
+     * 状态转移.
+     * @return 转移后的状态，不存在时返回{@link #EMPTY}.
+     */
+    final int transition(int state, char c) {
+        int code = this.code(c);
+        if (code == 0) {
+            return EMPTY;
+        }
+
+        int t = this.base(state) + code;
+        if (t < this.capacity() && this.check(t) == state) {
+            return t;
+        }
+        return EMPTY;
+    }
+
+    private boolean hasChildren(int state) {
+        return this.base(state) != 0;
+    }
+
+    /**
+     * 一次扫描check数组还原出所有词条.
+     */
+    DictSegment toDictSegment() {
+        DictSegment root = new DictSegment((char) 0);
+
+        char[] chars = new char[Character.MAX_VALUE + 2];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            chars[this.code((char) c)] = (char) c;
+        }
+
+        int capacity = this.capacity();
+        for (int t = ROOT + 1; t < capacity; t++) {
+            if (this.check(t) == EMPTY || !this.isWord(t)) {
+                continue;
+            }
+
+            int length = 0;
+            for (int s = t; s != ROOT; s = this.check(s)) {
+                length++;
+            }
+
+            char[] word = new char[length];
+            for (int s = t, i = length - 1; s != ROOT; s = this.check(s), i--) {
+                word[i] = chars[s - this.base(this.check(s))];
+            }
+            root.fillSegment(word);
+        }
+
+        return root;
+    }
+}
@@ -0,0 +1,79 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+/**
+ * 词典的多模式匹配(Aho-Corasick)自动机. <br/>
+ * 逐字符读入文本，每个字符只做一次(均摊)状态转移，即可得到以该字符结尾的全部词典词.
+ * 状态用int表示，检索过程不创建对象.
+ * <pre>
+ * int state = DictAutomaton.ROOT;
+ * for (int i = 0; i &lt; text.length; i++) {
+ *     state = automaton.next(state, text[i]);
+ *     for (int word = automaton.firstWord(state); word != DictAutomaton.ROOT; word = automaton.nextWord(word)) {
+ *         // 词为 text[i - automaton.length(word) + 1 .. i]
+ *     }
+ * }
+ * </pre>
+ */
+public interface DictAutomaton {
+
+    /**
+     * 初始状态，也表示不存在的词.
+     */
+    int ROOT = 0;
+
+    /**
+     * 状态转移，当前状态无法接受该字符时沿失败链回退.
+     * @param state 当前状态.
+     * @param c 读入的字符.
+     * @return 新状态.
+     */
+    int next(int state, char c);
+
+    /**
+     * @param state 当前状态.
+     * @return 以当前字符结尾的最长词，不存在时返回{@link #ROOT}.
+     */
+    int firstWord(int state);
+
+    /**
+     * @param word 以当前字符结尾的词.
+     * @return 以当前字符结尾的下一个更短的词，不存在时返回{@link #ROOT}.
+     */
+    int nextWord(int word);
+
+    /**
+     * @param word 词对应的状态.
+     * @return 词长.
+     */
+    int length(int word);
+
+    /**
+     * @param state 当前状态.
+     * @return 是否存在以当前字符结尾、读入后续字符后还可能成词的前缀.
+     */
+    boolean hasPrefix(int state);
+}
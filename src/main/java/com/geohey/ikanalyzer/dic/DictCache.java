@@ -0,0 +1,102 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 进程内共享的词典检索结构缓存，按引用计数释放. <br/>
+ * 键描述检索结构的来源(引擎和词典文件)，来源相同的词典实例共享同一个不可变的检索结构，
+ * 最后一个引用释放后移出缓存.
+ */
+final class DictCache {
+
+    private static final Map<String, Entry> ENTRIES = new HashMap<>();
+
+    private DictCache() {
+    }
+
+    /**
+     * 获取缓存的检索结构，引用计数加1.
+     * @param key 来源.
+     * @return 检索结构，未缓存时返回null.
+     */
+    static synchronized DictTrie acquire(String key) {
+        Entry entry = ENTRIES.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.references++;
+        return entry.trie;
+    }
+
+    /**
+     * 缓存新加载的检索结构，引用计数为1. 已有相同来源的缓存时沿用已缓存的检索结构.
+     * @param key 来源.
+     * @param trie 新加载的检索结构.
+     * @return 缓存中的检索结构.
+     */
+    static synchronized DictTrie register(String key, DictTrie trie) {
+        Entry entry = ENTRIES.get(key);
+        if (entry == null) {
+            entry = new Entry(trie);
+            ENTRIES.put(key, entry);
+        }
+        entry.references++;
+        return entry.trie;
+    }
+
+    /**
+     * 引用计数减1，为0时移出缓存.
+     * @param key 来源.
+     */
+    static synchronized void release(String key) {
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && --entry.references <= 0) {
+            ENTRIES.remove(key);
+        }
+    }
+
+    /**
+     * @return 来源对应的引用计数，未缓存时为0.
+     */
+    static synchronized int references(String key) {
+        Entry entry = ENTRIES.get(key);
+        return entry == null ? 0 : entry.references;
+    }
+
+    private static final class Entry {
+
+        final DictTrie trie;
+
+        int references;
+
+        Entry(DictTrie trie) {
+            this.trie = trie;
+        }
+    }
+}
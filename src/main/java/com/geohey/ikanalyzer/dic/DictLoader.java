@@ -0,0 +1,231 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行加载词典. <br/>
+ * 词典文件按行边界切分后并行解析；词条按首字符分组，每组对应根节点下的一棵子树，
+ * 各子树由不同的任务独立填充，互不共享节点，无需加锁. 根节点的子节点在填充前后由调用线程统一处理.
+ */
+final class DictLoader {
+
+    /**
+     * 词典加载和编译共用的线程池，并行度为可用的处理器数.
+     */
+    static final ForkJoinPool POOL = new ForkJoinPool();
+
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+
+    /**
+     * 单个解析任务处理的最小字节数.
+     */
+    private static final int PARSE_CHUNK = 1 << 18;
+
+    /**
+     * 单个填充任务处理的最少词条数.
+     */
+    private static final int FILL_THRESHOLD = 1 << 13;
+
+    private DictLoader() {
+    }
+
+    /**
+     * 解析词典文件内容，每行一个词条，去除首尾空白后转为小写，忽略空行.
+     * @param bytes UTF-8编码的词典文件内容.
+     * @return 词条，保持文件中的顺序.
+     */
+    static List<char[]> parse(final byte[] bytes) {
+        if (bytes.length <= PARSE_CHUNK) {
+            return parse(bytes, 0, bytes.length);
+        }
+
+        // 在换行符处切分，UTF-8的多字节字符中不会出现换行符
+        List<ForkJoinTask<List<char[]>>> tasks = new ArrayList<>();
+        int from = 0;
+        while (from < bytes.length) {
+            int to = Math.min(from + PARSE_CHUNK, bytes.length);
+            while (to < bytes.length && bytes[to - 1] != '\n') {
+                to++;
+            }
+
+            final int begin = from;
+            final int end = to;
+            tasks.add(new RecursiveTask<List<char[]>>() {
+                @Override
+                protected List<char[]> compute() {
+                    return parse(bytes, begin, end);
+                }
+            });
+            from = to;
+        }
+
+        invokeAll(tasks);
+        List<char[]> words = new ArrayList<>();
+        for (ForkJoinTask<List<char[]>> task : tasks) {
+            words.addAll(task.join());
+        }
+        return words;
+    }
+
+    private static List<char[]> parse(byte[] bytes, int from, int to) {
+        String text = new String(bytes, from, to - from, ENCODING);
+        List<char[]> words = new ArrayList<>();
+
+        int begin = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == '\n' || text.charAt(i) == '\r') {
+                String word = text.substring(begin, i).trim();
+                if (!"".equals(word)) {
+                    words.add(word.toLowerCase().toCharArray());
+                }
+                begin = i + 1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * 将词条加载到词典树中. 词典树发布前调用，调用期间不能有其他线程读写该词典树.
+     * @param root 词典树的根节点.
+     * @param words 词条.
+     */
+    static void fill(DictSegment root, List<char[]> words) {
+        // 按首字符计数排序
+        int[] offsets = new int[Character.MAX_VALUE + 2];
+        for (char[] word : words) {
+            offsets[word[0] + 1]++;
+        }
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+
+        char[][] sorted = new char[words.size()][];
+        int[] next = new int[Character.MAX_VALUE + 1];
+        System.arraycopy(offsets, 0, next, 0, next.length);
+        for (char[] word : words) {
+            sorted[next[word[0]]++] = word;
+        }
+
+        // 根节点只在当前线程上修改
+        List<DictSegment> segments = new ArrayList<>();
+        List<Integer> groups = new ArrayList<>();
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (offsets[c + 1] > offsets[c]) {
+                segments.add(root.getOrAddSegment((char) c));
+                groups.add(offsets[c]);
+            }
+        }
+        groups.add(sorted.length);
+
+        invoke(new FillTask(sorted,
+                            segments.toArray(new DictSegment[segments.size()]),
+                            toArray(groups), 0, segments.size()));
+    }
+
+    /**
+     * 在{@link #POOL}中执行任务，当前线程已是其中的工作线程时直接执行.
+     */
+    static <T> T invoke(ForkJoinTask<T> task) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            return task.invoke();
+        }
+        return POOL.invoke(task);
+    }
+
+    /**
+     * 在{@link #POOL}中并行执行全部任务并等待完成.
+     */
+    static void invokeAll(final List<? extends ForkJoinTask<?>> tasks) {
+        invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * 填充一段连续的首字符分组，词条较多时对半拆分.
+     */
+    private static final class FillTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final char[][] words;
+
+        private final DictSegment[] segments;
+
+        /**
+         * 第i组词条在words中的区间为[groups[i], groups[i + 1]).
+         */
+        private final int[] groups;
+
+        private final int from;
+
+        private final int to;
+
+        FillTask(char[][] words, DictSegment[] segments, int[] groups, int from, int to) {
+            this.words = words;
+            this.segments = segments;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && groups[to] - groups[from] > FILL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FillTask(words, segments, groups, from, middle),
+                          new FillTask(words, segments, groups, middle, to));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                DictSegment segment = segments[i];
+                for (int w = groups[i]; w < groups[i + 1]; w++) {
+                    segment.fillSuffix(words[w], 1);
+                }
+            }
+        }
+    }
+}
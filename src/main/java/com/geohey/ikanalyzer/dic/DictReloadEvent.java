@@ -0,0 +1,102 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+/**
+ * 词典文件重新加载的结果.
+ */
+public final class DictReloadEvent {
+
+    private final long version;
+
+    private final boolean mainDict;
+
+    private final boolean stopWordDict;
+
+    private final int mainWords;
+
+    private final int stopWords;
+
+    private final long elapsedMillis;
+
+    DictReloadEvent(long version, boolean mainDict, boolean stopWordDict,
+                    int mainWords, int stopWords, long elapsedMillis) {
+        this.version = version;
+        this.mainDict = mainDict;
+        this.stopWordDict = stopWordDict;
+        this.mainWords = mainWords;
+        this.stopWords = stopWords;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return 发布的词典版本号.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 是否重建了主词典(含扩展词典).
+     */
+    public boolean isMainDict() {
+        return mainDict;
+    }
+
+    /**
+     * @return 是否重建了停止词词典.
+     */
+    public boolean isStopWordDict() {
+        return stopWordDict;
+    }
+
+    /**
+     * @return 重建主词典时从词典文件读入的词条数，未重建时为0.
+     */
+    public int getMainWords() {
+        return mainWords;
+    }
+
+    /**
+     * @return 重建停止词词典时从词典文件读入的词条数，未重建时为0.
+     */
+    public int getStopWords() {
+        return stopWords;
+    }
+
+    /**
+     * @return 重建和发布的耗时，毫秒.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "DictReloadEvent{version=" + version + ", mainDict=" + mainDict + ", stopWordDict=" + stopWordDict
+               + ", mainWords=" + mainWords + ", stopWords=" + stopWords + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
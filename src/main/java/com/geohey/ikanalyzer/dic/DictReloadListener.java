@@ -0,0 +1,49 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * 词典文件重新加载的监听接口，回调在{@link DictReloader}的后台线程上执行.
+ */
+public interface DictReloadListener {
+
+    /**
+     * 新版本发布后调用.
+     * @param files 发生变化的词典文件.
+     * @param event 重新加载的结果.
+     */
+    void onReload(Collection<Path> files, DictReloadEvent event);
+
+    /**
+     * 重新加载失败时调用，当前版本保持不变.
+     * @param files 发生变化的词典文件.
+     * @param e 异常.
+     */
+    void onReloadFailure(Collection<Path> files, Exception e);
+}
@@ -0,0 +1,233 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import com.geohey.ikanalyzer.cfg.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监视文件系统中的扩展词典和停止词典，文件变化后在后台线程上重建受影响的词典并原子替换. <br/>
+ * 分词线程始终使用已发布的{@link DictVersion}，重建期间不会暂停.
+ * 文件变化后等待一段静默时间再重新加载，合并编辑器保存文件时产生的多个事件.
+ */
+public final class DictReloader implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictReloader.class);
+
+    /**
+     * 最后一次文件事件之后的静默时间，毫秒.
+     */
+    private static final long QUIET_MILLIS = 500;
+
+    private final AbstractDictionary dictionary;
+
+    private final Set<Path> mainFiles;
+
+    private final Set<Path> stopWordFiles;
+
+    private final WatchService watcher;
+
+    private final Thread thread;
+
+    private final List<DictReloadListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 监视配置中的文件系统词典.
+     * @param dictionary 重新加载的词典.
+     * @param cfg 配置.
+     * @throws IOException 无法监视词典文件所在目录.
+     */
+    public DictReloader(AbstractDictionary dictionary, Configuration cfg) throws IOException {
+        this.dictionary = dictionary;
+        this.mainFiles = toPaths(cfg.getExtDictionaryFiles());
+        this.stopWordFiles = toPaths(cfg.getExtStopWordDictionaryFiles());
+
+        this.watcher = FileSystems.getDefault().newWatchService();
+        Set<Path> dirs = new HashSet<>();
+        for (Path file : mainFiles) {
+            dirs.add(file.getParent());
+        }
+        for (Path file : stopWordFiles) {
+            dirs.add(file.getParent());
+        }
+        try {
+            for (Path dir : dirs) {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                             StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                LOGGER.info("监视词典目录：{}", dir);
+            }
+        } catch (IOException e) {
+            watcher.close();
+            throw e;
+        }
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "ik-dict-reloader");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 启动后台监视线程.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    public void addListener(DictReloadListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DictReloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 停止监视.
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+
+    /**
+     * 重新加载发生变化的词典文件并通知监听器.
+     * @param files 发生变化的词典文件.
+     */
+    void reload(Collection<Path> files) {
+        boolean mainDict = false;
+        boolean stopWordDict = false;
+        for (Path file : files) {
+            mainDict |= mainFiles.contains(file);
+            stopWordDict |= stopWordFiles.contains(file);
+        }
+        if (!mainDict && !stopWordDict) {
+            return;
+        }
+
+        LOGGER.info("词典文件变化：{}", files);
+        DictReloadEvent event;
+        try {
+            event = dictionary.reload(mainDict, stopWordDict);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("重新加载词典文件 {} 异常, {}", files, e);
+            for (DictReloadListener listener : listeners) {
+                try {
+                    listener.onReloadFailure(files, e);
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("词典重新加载监听器异常, {}", ex);
+                }
+            }
+            return;
+        }
+
+        for (DictReloadListener listener : listeners) {
+            try {
+                listener.onReload(files, event);
+            } catch (RuntimeException e) {
+                LOGGER.warn("词典重新加载监听器异常, {}", e);
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                WatchKey key = watcher.take();
+                do {
+                    collect(key, changed);
+                    key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (!changed.isEmpty()) {
+                    reload(changed);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.info("停止监视词典文件");
+        }
+    }
+
+    /**
+     * 收集事件中被监视的词典文件.
+     */
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 事件丢失，目录下所有词典都可能变化
+                addFilesIn(dir, mainFiles, changed);
+                addFilesIn(dir, stopWordFiles, changed);
+                continue;
+            }
+
+            Path file = dir.resolve((Path) event.context());
+            if (mainFiles.contains(file) || stopWordFiles.contains(file)) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    private static void addFilesIn(Path dir, Set<Path> files, Set<Path> changed) {
+        for (Path file : files) {
+            if (dir.equals(file.getParent())) {
+                changed.add(file);
+            }
+        }
+    }
+
+    private static Set<Path> toPaths(List<String> paths) {
+        Set<Path> files = new HashSet<>();
+        for (String path : paths) {
+            files.add(Paths.get(path).toAbsolutePath().normalize());
+        }
+        return files;
+    }
+}
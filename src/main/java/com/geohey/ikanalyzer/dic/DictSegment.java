@@ -25,47 +25,49 @@ package com.geohey.ikanalyzer.dic;
  */
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
- * 词典树分段，表示词典树的一个分枝.
+ * 词典树分段，表示词典树的一个分枝. <br/>
+ * 子节点以字符为键存放在开放寻址(线性探测)散列表中，键为基本类型char，检索过程不创建对象.
+ * 词典加载时直接填充词典树，同一节点不会被多个线程同时填充；加载完成后通过{@link #update(Collection, Collection)}以路径复制的方式生成新树，
+ * 已发布的词典树不再修改.
+ * 子节点较多的根节点在首次检索时另建以字符编码直接寻址的{@link RootTable}，首字只需一次数组访问.
  *
  * @author Liangyi Lin.
  *
  * @version 2012.
  */
-class DictSegment implements Comparable<DictSegment>{
+class DictSegment implements DictTrie, Comparable<DictSegment>{
 
-    //公用字典表，存储汉字
-    private static final Map<Character , Character> charMap = new HashMap<Character , Character>(16 , 0.95f);
-    //数组大小上限
-    private static final int ARRAY_LENGTH_LIMIT = 3;
+    //子节点表的初始容量
+    private static final int INITIAL_CAPACITY = 2;
 
+    //子节点数达到该值时才为根节点建立直接寻址表，叠加层等小词典树不需要
+    private static final int ROOT_TABLE_THRESHOLD = 256;
 
-    //Map存储结构
-    private Map<Character , DictSegment> childrenMap;
-    //数组方式存储结构
-    private DictSegment[] childrenArray;
+
+    //子节点表
+    private Children children;
+
+    //根节点的直接寻址表，首次检索时生成；表不可变，通过final字段安全发布
+    private RootTable rootTable;
 
 
     //当前节点上存储的字符
-    private Character nodeChar;
-    //当前节点存储的Segment数目
-    //storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用Map存储
-    private int storeSize = 0;
+    private final char nodeChar;
     //当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
     private int nodeState = 0;
 
 
-    DictSegment(Character nodeChar){
-        if(nodeChar == null){
-            throw new IllegalArgumentException("参数为空异常，字符不能为空");
-        }
+    DictSegment(char nodeChar){
         this.nodeChar = nodeChar;
     }
 
-    Character getNodeChar() {
+    char getNodeChar() {
         return nodeChar;
     }
 
@@ -73,7 +75,8 @@ class DictSegment implements Comparable<DictSegment>{
      * 判断是否有下一个节点
      */
     boolean hasNextNode(){
-        return  this.storeSize > 0;
+        Children table = this.children;
+        return table != null && table.size > 0;
     }
 
     /**
@@ -81,7 +84,7 @@ class DictSegment implements Comparable<DictSegment>{
      * @param charArray
      * @return Hit
      */
-    Hit match(char[] charArray){
+    public Hit match(char[] charArray){
         return this.match(charArray , 0 , charArray.length , null);
     }
 
@@ -92,10 +95,46 @@ class DictSegment implements Comparable<DictSegment>{
      * @param length
      * @return Hit
      */
-    Hit match(char[] charArray , int begin , int length){
+    public Hit match(char[] charArray , int begin , int length){
         return this.match(charArray , begin , length , null);
     }
 
+    /**
+     * 从Hit记录的DictSegment继续匹配下一个字符
+     * @param charArray
+     * @param currentIndex
+     * @param matchedHit
+     * @return Hit
+     */
+    public Hit matchWithHit(char[] charArray , int currentIndex , Hit matchedHit){
+        return matchedHit.getMatchedDictSegment().match(charArray , currentIndex , 1 , matchedHit);
+    }
+
+    /**
+     * 单字匹配，不创建Hit
+     * @param c
+     * @return 匹配状态
+     */
+    public int matchChar(char c){
+        RootTable table = this.rootTable();
+        if(table != null){
+            return table.states[c];
+        }
+        return stateOf(this.lookforSegment(c));
+    }
+
+    /**
+     * 判断词段是否成词
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return boolean
+     */
+    public boolean contains(char[] charArray , int begin , int length){
+        DictSegment ds = this.lookforSegment(charArray , begin , length);
+        return ds != null && ds.nodeState == 1;
+    }
+
     /**
      * 匹配词段
      * @param charArray
@@ -106,6 +145,7 @@ class DictSegment implements Comparable<DictSegment>{
      */
     Hit match(char[] charArray , int begin , int length , Hit searchHit){
 
+        boolean fromRoot = searchHit == null;
         if(searchHit == null){
             //如果hit为空，新建
             searchHit= new Hit();
@@ -115,53 +155,35 @@ class DictSegment implements Comparable<DictSegment>{
             //否则要将HIT状态重置
             searchHit.setUnmatch();
         }
-        //设置hit的当前处理位置
-        searchHit.setEnd(begin);
-
-        Character keyChar = new Character(charArray[begin]);
-        DictSegment ds = null;
-
-        //引用实例变量为本地变量，避免查询时遇到更新的同步问题
-        DictSegment[] segmentArray = this.childrenArray;
-        Map<Character , DictSegment> segmentMap = this.childrenMap;
-
-        //STEP1 在节点中查找keyChar对应的DictSegment
-        if(segmentArray != null){
-            //在数组中查找
-            DictSegment keySegment = new DictSegment(keyChar);
-            int position = Arrays.binarySearch(segmentArray, 0 , this.storeSize , keySegment);
-            if(position >= 0){
-                ds = segmentArray[position];
-            }
-
-        }else if(segmentMap != null){
-            //在map中查找
-            ds = (DictSegment)segmentMap.get(keyChar);
-        }
-
-        //STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
-        if(ds != null){
-            if(length > 1){
-                //词未匹配完，继续往下搜索
-                return ds.match(charArray, begin + 1 , length - 1 , searchHit);
-            }else if (length == 1){
 
-                //搜索最后一个char
-                if(ds.nodeState == 1){
-                    //添加HIT状态为完全匹配
-                    searchHit.setMatch();
-                }
-                if(ds.hasNextNode()){
-                    //添加HIT状态为前缀匹配
-                    searchHit.setPrefix();
-                    //记录当前位置的DictSegment
-                    searchHit.setMatchedDictSegment(ds);
-                }
+        //逐个字符向下查找，记录hit的当前处理位置；从根节点开始的匹配首字查直接寻址表
+        RootTable table = fromRoot ? this.rootTable() : null;
+        DictSegment ds = this;
+        for(int i = begin ; i < begin + length ; i++){
+            searchHit.setEnd(i);
+            ds = table != null && ds == this ? table.segments[charArray[i]] : ds.lookforSegment(charArray[i]);
+            if(ds == null){
+                //没有找到DictSegment， 将HIT设置为不匹配
                 return searchHit;
             }
+        }
+        if(ds == this){
+            //length <= 0
+            searchHit.setEnd(begin);
+            return searchHit;
+        }
 
+        //搜索到最后一个char
+        if(ds.nodeState == 1){
+            //添加HIT状态为完全匹配
+            searchHit.setMatch();
+        }
+        if(ds.hasNextNode()){
+            //添加HIT状态为前缀匹配
+            searchHit.setPrefix();
+            //记录当前位置的DictSegment
+            searchHit.setMatchedDictSegment(ds);
         }
-        //STEP3 没有找到DictSegment， 将HIT设置为不匹配
         return searchHit;
     }
 
@@ -170,17 +192,104 @@ class DictSegment implements Comparable<DictSegment>{
      * @param charArray
      */
     void fillSegment(char[] charArray){
+        this.rootTable = null;
         this.fillSegment(charArray, 0 , charArray.length , 1);
     }
 
+    /**
+     * 加载填充词典片段中begin之后的部分，当前节点对应begin之前的字符
+     * @param charArray
+     * @param begin
+     */
+    void fillSuffix(char[] charArray , int begin){
+        if(begin < charArray.length){
+            this.fillSegment(charArray , begin , charArray.length - begin , 1);
+        }else{
+            this.nodeState = 1;
+        }
+    }
+
+    /**
+     * 查找keyChar对应的子节点，没有则创建
+     * @param keyChar
+     * @return DictSegment
+     */
+    DictSegment getOrAddSegment(char keyChar){
+        this.rootTable = null;
+        DictSegment ds = this.lookforSegment(keyChar);
+        if(ds == null){
+            ds = new DictSegment(keyChar);
+            this.addSegment(ds);
+        }
+        return ds;
+    }
+
     /**
      * 屏蔽词典中的一个词
      * @param charArray
      */
     void disableSegment(char[] charArray){
+        this.rootTable = null;
         this.fillSegment(charArray, 0 , charArray.length , 0);
     }
 
+    /**
+     * 批量加载和屏蔽词典片段，不修改当前词典树
+     * 只复制修改路径上的节点，其余子树与当前词典树共享
+     * @param added
+     * @param disabled
+     * @return 新的词典树
+     */
+    public DictTrie update(Collection<char[]> added , Collection<char[]> disabled){
+        //本次更新中已复制的节点，可以直接修改
+        Set<DictSegment> copies = Collections.newSetFromMap(new IdentityHashMap<DictSegment , Boolean>());
+        DictSegment root = this.copy(copies);
+
+        for(char[] word : added){
+            root.fillCopy(word , 0 , word.length , 1 , copies);
+        }
+        for(char[] word : disabled){
+            if(root.contains(word , 0 , word.length)){
+                root.fillCopy(word , 0 , word.length , 0 , copies);
+            }
+        }
+
+        //已有直接寻址表时只重新计算修改过的首字
+        RootTable table = this.rootTable;
+        if(table != null){
+            root.rootTable = new RootTable(table , root , added , disabled);
+        }
+        return root;
+    }
+
+    /**
+     * 判断从根节点到当前节点的路径是否表示一个词
+     */
+    boolean isWord(){
+        return this.nodeState == 1;
+    }
+
+    /**
+     * 获取按字符排序的子节点，用于将词典树编译为其他存储结构
+     * @return 子节点数组，没有子节点时返回空数组
+     */
+    DictSegment[] getChildren(){
+        Children table = this.children;
+        if(table == null){
+            return new DictSegment[0];
+        }
+
+        DictSegment[] segments = new DictSegment[table.size];
+        int count = 0;
+        for(DictSegment segment : table.segments){
+            if(segment != null && count < segments.length){
+                segments[count++] = segment;
+            }
+        }
+        Arrays.sort(segments , 0 , count);
+        return count == segments.length ? segments : Arrays.copyOf(segments , count);
+    }
+
     /**
      * 加载填充词典片段
      * @param charArray
@@ -188,18 +297,14 @@ class DictSegment implements Comparable<DictSegment>{
      * @param length
      * @param enabled
      */
-    private synchronized void fillSegment(char[] charArray , int begin , int length , int enabled){
-        //获取字典表中的汉字对象
-        Character beginChar = new Character(charArray[begin]);
-        Character keyChar = charMap.get(beginChar);
-        //字典中没有该字，则将其添加入字典
-        if(keyChar == null){
-            charMap.put(beginChar, beginChar);
-            keyChar = beginChar;
-        }
-
-        //搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
-        DictSegment ds = lookforSegment(keyChar , enabled);
+    private void fillSegment(char[] charArray , int begin , int length , int enabled){
+        //搜索当前节点的存储，查询对应keyChar的segment，如果没有则创建
+        DictSegment ds = this.lookforSegment(charArray[begin]);
+        if(ds == null && enabled == 1){
+            ds = new DictSegment(charArray[begin]);
+            this.addSegment(ds);
+        }
+
         if(ds != null){
             //处理keyChar对应的segment
             if(length > 1){
@@ -215,109 +320,148 @@ class DictSegment implements Comparable<DictSegment>{
     }
 
     /**
-     * 查找本节点下对应的keyChar的segment	 *
-     * @param keyChar
-     * @param create  =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
-     * @return
+     * 在复制的路径上加载或屏蔽词典片段，当前节点必须是本次更新中复制的节点
+     * @param charArray
+     * @param begin
+     * @param length
+     * @param enabled
+     * @param copies
      */
-    private DictSegment lookforSegment(Character keyChar ,  int create){
-
-        DictSegment ds = null;
-
-        if(this.storeSize <= ARRAY_LENGTH_LIMIT){
-            //获取数组容器，如果数组未创建则创建数组
-            DictSegment[] segmentArray = getChildrenArray();
-            //搜寻数组
-            DictSegment keySegment = new DictSegment(keyChar);
-            int position = Arrays.binarySearch(segmentArray, 0 , this.storeSize, keySegment);
-            if(position >= 0){
-                ds = segmentArray[position];
-            }
-
-            //遍历数组后没有找到对应的segment
-            if(ds == null && create == 1){
-                ds = keySegment;
-                if(this.storeSize < ARRAY_LENGTH_LIMIT){
-                    //数组容量未满，使用数组存储
-                    segmentArray[this.storeSize] = ds;
-                    //segment数目+1
-                    this.storeSize++;
-                    Arrays.sort(segmentArray , 0 , this.storeSize);
-
-                }else{
-                    //数组容量已满，切换Map存储
-                    //获取Map容器，如果Map未创建,则创建Map
-                    Map<Character , DictSegment> segmentMap = getChildrenMap();
-                    //将数组中的segment迁移到Map中
-                    migrate(segmentArray ,  segmentMap);
-                    //存储新的segment
-                    segmentMap.put(keyChar, ds);
-                    //segment数目+1 ，  必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-                    this.storeSize++;
-                    //释放当前的数组引用
-                    this.childrenArray = null;
-                }
-
+    private void fillCopy(char[] charArray , int begin , int length , int enabled , Set<DictSegment> copies){
+        DictSegment ds = this.lookforSegment(charArray[begin]);
+        if(ds == null){
+            if(enabled == 0){
+                return;
             }
+            ds = new DictSegment(charArray[begin]);
+            copies.add(ds);
+            this.addSegment(ds);
+        }else if(!copies.contains(ds)){
+            //共享的节点，复制后替换
+            ds = ds.copy(copies);
+            this.children.replace(ds);
+        }
 
+        if(length > 1){
+            ds.fillCopy(charArray , begin + 1 , length - 1 , enabled , copies);
         }else{
-            //获取Map容器，如果Map未创建,则创建Map
-            Map<Character , DictSegment> segmentMap = getChildrenMap();
-            //搜索Map
-            ds = (DictSegment)segmentMap.get(keyChar);
-            if(ds == null && create == 1){
-                //构造新的segment
-                ds = new DictSegment(keyChar);
-                segmentMap.put(keyChar , ds);
-                //当前节点存储segment数目+1
-                this.storeSize ++;
-            }
+            ds.nodeState = enabled;
         }
+    }
 
+    /**
+     * 复制当前节点，子节点表复制一份，子节点仍共享
+     */
+    private DictSegment copy(Set<DictSegment> copies){
+        DictSegment ds = new DictSegment(this.nodeChar);
+        ds.nodeState = this.nodeState;
+        Children table = this.children;
+        if(table != null){
+            ds.children = table.copy();
+        }
+        copies.add(ds);
         return ds;
     }
 
+    /**
+     * 沿词段逐个字符查找segment
+     * @return 词段最后一个字符对应的segment，不存在或length <= 0时返回null
+     */
+    private DictSegment lookforSegment(char[] charArray , int begin , int length){
+        if(length <= 0){
+            return null;
+        }
+
+        //更新过程中也会调用，不在此生成直接寻址表
+        RootTable table = this.rootTable;
+        DictSegment ds = table != null ? table.segments[charArray[begin]] : this.lookforSegment(charArray[begin]);
+        for(int i = begin + 1 ; i < begin + length && ds != null ; i++){
+            ds = ds.lookforSegment(charArray[i]);
+        }
+        return ds;
+    }
 
     /**
-     * 获取数组容器
-     * 线程同步方法
+     * 查找本节点下对应的keyChar的segment
+     * @param keyChar
+     * @return 没有找到时返回null
      */
-    private DictSegment[] getChildrenArray(){
-        if(this.childrenArray == null){
-            synchronized(this){
-                if(this.childrenArray == null){
-                    this.childrenArray = new DictSegment[ARRAY_LENGTH_LIMIT];
-                }
+    private DictSegment lookforSegment(char keyChar){
+        //引用实例变量为本地变量，避免查询时遇到更新的同步问题
+        Children table = this.children;
+        if(table == null){
+            return null;
+        }
+
+        char[] keys = table.keys;
+        DictSegment[] segments = table.segments;
+        int mask = keys.length - 1;
+        for(int i = hash(keyChar) & mask ; ; i = (i + 1) & mask){
+            if(keys[i] == keyChar){
+                //键写入前已写入segment，并发插入时最多读到null，视为未找到
+                return segments[i];
+            }
+            if(segments[i] == null){
+                return null;
             }
         }
-        return this.childrenArray;
     }
 
     /**
-     * 获取Map容器
-     * 线程同步方法
+     * 添加子节点
+     * 表容量不足时生成新表后整体替换
      */
-    private Map<Character , DictSegment> getChildrenMap(){
-        if(this.childrenMap == null){
-            synchronized(this){
-                if(this.childrenMap == null){
-                    this.childrenMap = new HashMap<Character , DictSegment>(ARRAY_LENGTH_LIMIT * 2,0.8f);
+    private void addSegment(DictSegment ds){
+        Children table = this.children;
+        if(table == null){
+            table = new Children(INITIAL_CAPACITY);
+        }else if((table.size + 1) * 4 > table.keys.length * 3){
+            //装载因子超过0.75，扩容
+            Children larger = new Children(table.keys.length * 2);
+            for(DictSegment segment : table.segments){
+                if(segment != null){
+                    larger.put(segment);
                 }
             }
+            table = larger;
         }
-        return this.childrenMap;
+
+        table.put(ds);
+        this.children = table;
     }
 
     /**
-     * 将数组中的segment迁移到Map中
-     * @param segmentArray
+     * 获取直接寻址表，子节点足够多时首次调用生成
+     * @return 子节点较少时返回null
      */
-    private void migrate(DictSegment[] segmentArray , Map<Character , DictSegment> segmentMap){
-        for(DictSegment segment : segmentArray){
-            if(segment != null){
-                segmentMap.put(segment.nodeChar, segment);
+    private RootTable rootTable(){
+        RootTable table = this.rootTable;
+        if(table == null){
+            Children children = this.children;
+            if(children != null && children.size >= ROOT_TABLE_THRESHOLD){
+                //并发时可能重复生成，结果相同
+                table = new RootTable(this);
+                this.rootTable = table;
             }
         }
+        return table;
+    }
+
+    /**
+     * 节点的单字匹配状态
+     */
+    private static int stateOf(DictSegment ds){
+        if(ds == null){
+            return Hit.UNMATCH;
+        }
+        return (ds.nodeState == 1 ? Hit.MATCH : Hit.UNMATCH) | (ds.hasNextNode() ? Hit.PREFIX : Hit.UNMATCH);
+    }
+
+    /**
+     * 直接以字符编码为散列值：同一节点下的汉字多分布在连续的编码区间，取低位即可均匀分布
+     */
+    private static int hash(char keyChar){
+        return keyChar;
     }
 
     /**
@@ -327,7 +471,98 @@ class DictSegment implements Comparable<DictSegment>{
      */
     public int compareTo(DictSegment o) {
         //对当前节点存储的char进行比较
-        return this.nodeChar.compareTo(o.nodeChar);
+        return this.nodeChar - o.nodeChar;
+    }
+
+    /**
+     * 根节点的直接寻址表，以字符编码为下标存放子节点及其单字匹配状态
+     */
+    private static final class RootTable {
+
+        final DictSegment[] segments;
+
+        final byte[] states;
+
+        RootTable(DictSegment root){
+            this.segments = new DictSegment[Character.MAX_VALUE + 1];
+            this.states = new byte[Character.MAX_VALUE + 1];
+            for(DictSegment ds : root.children.segments){
+                if(ds != null){
+                    this.set(ds.nodeChar , ds);
+                }
+            }
+        }
+
+        /**
+         * 复制更新前的表，重新计算加载和屏蔽的词条的首字
+         */
+        RootTable(RootTable table , DictSegment root , Collection<char[]> added , Collection<char[]> disabled){
+            this.segments = table.segments.clone();
+            this.states = table.states.clone();
+            for(char[] word : added){
+                if(word.length > 0){
+                    this.set(word[0] , root.lookforSegment(word[0]));
+                }
+            }
+            for(char[] word : disabled){
+                if(word.length > 0){
+                    this.set(word[0] , root.lookforSegment(word[0]));
+                }
+            }
+        }
+
+        private void set(char c , DictSegment ds){
+            this.segments[c] = ds;
+            this.states[c] = (byte) stateOf(ds);
+        }
+    }
+
+    /**
+     * 子节点散列表，容量为2的幂，键为子节点上存储的字符
+     */
+    private static final class Children {
+
+        final char[] keys;
+
+        final DictSegment[] segments;
+
+        int size;
+
+        Children(int capacity){
+            this.keys = new char[capacity];
+            this.segments = new DictSegment[capacity];
+        }
+
+        Children copy(){
+            Children table = new Children(keys.length);
+            System.arraycopy(keys , 0 , table.keys , 0 , keys.length);
+            System.arraycopy(segments , 0 , table.segments , 0 , segments.length);
+            table.size = size;
+            return table;
+        }
+
+        /**
+         * 替换字符相同的子节点
+         */
+        void replace(DictSegment ds){
+            int mask = keys.length - 1;
+            int i = hash(ds.nodeChar) & mask;
+            while(segments[i] == null || keys[i] != ds.nodeChar){
+                i = (i + 1) & mask;
+            }
+            segments[i] = ds;
+        }
+
+        void put(DictSegment ds){
+            int mask = keys.length - 1;
+            int i = hash(ds.nodeChar) & mask;
+            while(segments[i] != null){
+                i = (i + 1) & mask;
+            }
+            segments[i] = ds;
+            keys[i] = ds.nodeChar;
+            size++;
+        }
     }
 
 }
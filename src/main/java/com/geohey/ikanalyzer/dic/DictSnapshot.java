@@ -0,0 +1,253 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import com.geohey.ikanalyzer.cfg.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 预编译的词典快照. <br/>
+ * 将主词典(含扩展词典)、量词词典、停止词词典编译后的{@link DoubleArrayTrie}写入同一个二进制文件，
+ * 启动时一次读入或直接内存映射，省去逐行解析文本词典和编译双数组的开销.
+ * <p>
+ * 文件格式(小端，与主流平台的本地字节序一致，映射后读取无需字节交换): 魔数、格式版本、词典文件指纹、主词典、量词词典、停止词词典.
+ * 指纹由配置中各词典文件的路径和内容计算，与当前词典文件不一致时快照视为过期.
+ * </p>
+ */
+final class DictSnapshot {
+
+    /**
+     * 文件魔数 "IKDS".
+     */
+    static final int MAGIC = 0x494B4453;
+
+    /**
+     * 格式版本，双数组序列化格式变化时递增.
+     */
+    static final int VERSION = 3;
+
+    /**
+     * 文件字节序.
+     */
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private static final Charset KEY_ENCODING = Charset.forName("UTF-8");
+
+    final long fingerprint;
+
+    final AbstractDoubleArrayTrie mainTrie;
+
+    final AbstractDoubleArrayTrie quantifierTrie;
+
+    final AbstractDoubleArrayTrie stopWordTrie;
+
+    private DictSnapshot(long fingerprint, AbstractDoubleArrayTrie mainTrie,
+                         AbstractDoubleArrayTrie quantifierTrie, AbstractDoubleArrayTrie stopWordTrie) {
+        this.fingerprint = fingerprint;
+        this.mainTrie = mainTrie;
+        this.quantifierTrie = quantifierTrie;
+        this.stopWordTrie = stopWordTrie;
+    }
+
+    /**
+     * 计算配置中全部词典文件的指纹.
+     * @param cfg 配置.
+     * @param classLoader 加载词典文件的类加载器.
+     * @return 指纹.
+     */
+    static long fingerprint(Configuration cfg, ClassLoader classLoader) throws IOException {
+        List<String> keys = new ArrayList<>();
+        keys.add(cfg.getMainDictionary());
+        keys.addAll(cfg.getExtDictionarys());
+        keys.add(cfg.getQuantifierDictionay());
+        keys.addAll(cfg.getExtStopWordDictionarys());
+
+        CRC32 crc = new CRC32();
+        crc.update(VERSION);
+        for (String key : keys) {
+            crc.update(key.getBytes(KEY_ENCODING));
+            update(crc, classLoader.getResourceAsStream(key));
+        }
+
+        // 文件系统中的词典变化后快照同样过期
+        List<String> files = new ArrayList<>(cfg.getExtDictionaryFiles());
+        files.addAll(cfg.getExtStopWordDictionaryFiles());
+        for (String path : files) {
+            crc.update(path.getBytes(KEY_ENCODING));
+            File file = new File(path);
+            if (file.isFile()) {
+                update(crc, new FileInputStream(file));
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void update(CRC32 crc, InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 读取快照. 路径先按文件查找，不存在时再按类加载器资源查找.
+     * @return 快照，文件不存在时返回null.
+     * @throws IOException 读取失败，文件格式、版本不符，或内容不完整.
+     */
+    static DictSnapshot read(String key, ClassLoader classLoader) throws IOException {
+        byte[] bytes;
+        File file = new File(key);
+        if (file.isFile()) {
+            bytes = Files.readAllBytes(file.toPath());
+        } else {
+            InputStream in = classLoader.getResourceAsStream(key);
+            if (in == null) {
+                return null;
+            }
+            try {
+                bytes = readFully(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(BYTE_ORDER);
+        long fingerprint = readHeader(buffer, key);
+        return new DictSnapshot(fingerprint,
+                                DoubleArrayTrie.readFrom(buffer),
+                                DoubleArrayTrie.readFrom(buffer),
+                                DoubleArrayTrie.readFrom(buffer));
+    }
+
+    /**
+     * 以只读方式映射快照文件，双数组不复制到堆内.
+     * 映射在文件关闭后依然有效，直到缓冲区被回收.
+     * @return 快照，文件不存在时返回null.
+     * @throws IOException 映射失败，文件格式、版本不符，或内容不完整.
+     */
+    static DictSnapshot map(String key) throws IOException {
+        File file = new File(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        ByteBuffer buffer;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(BYTE_ORDER);
+        } finally {
+            raf.close();
+        }
+
+        long fingerprint = readHeader(buffer, key);
+        return new DictSnapshot(fingerprint,
+                                MappedDoubleArrayTrie.map(buffer),
+                                MappedDoubleArrayTrie.map(buffer),
+                                MappedDoubleArrayTrie.map(buffer));
+    }
+
+    /**
+     * 校验魔数和格式版本.
+     * @return 词典文件指纹.
+     */
+    private static long readHeader(ByteBuffer buffer, String key) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(String.format("%s is not a dictionary snapshot", key));
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(String.format("%s snapshot version %d, expected %d", key, version, VERSION));
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * 写入快照文件. 先写入临时文件再替换，避免正在映射该文件的进程读到不完整的内容.
+     */
+    static void write(File file, long fingerprint, DoubleArrayTrie mainTrie,
+                      DoubleArrayTrie quantifierTrie, DoubleArrayTrie stopWordTrie) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+                                                + mainTrie.byteSize()
+                                                + quantifierTrie.byteSize()
+                                                + stopWordTrie.byteSize()).order(BYTE_ORDER);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(fingerprint);
+        mainTrie.writeTo(buffer);
+        quantifierTrie.writeTo(buffer);
+        stopWordTrie.writeTo(buffer);
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(buffer.array());
+            } finally {
+                out.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
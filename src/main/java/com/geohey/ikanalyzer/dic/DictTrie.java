@@ -0,0 +1,84 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.Collection;
+
+/**
+ * 词典树的检索接口，屏蔽词典树的具体存储结构(对象树、双数组等).
+ */
+interface DictTrie {
+
+    /**
+     * 匹配词段.
+     * @param charArray
+     * @return 匹配结果描述对象Hit.
+     */
+    Hit match(char[] charArray);
+
+    /**
+     * 匹配词段.
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 匹配结果描述对象Hit.
+     */
+    Hit match(char[] charArray, int begin, int length);
+
+    /**
+     * 从Hit记录的匹配位置继续向下匹配一个字符.
+     * @param charArray
+     * @param currentIndex
+     * @param matchedHit
+     * @return 匹配结果描述对象Hit.
+     */
+    Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit);
+
+    /**
+     * 单字匹配，不创建{@link Hit}.
+     * @param c
+     * @return 匹配状态，{@link Hit#MATCH}、{@link Hit#PREFIX}的组合，{@link Hit#UNMATCH}表示该字既不成词也不是词前缀.
+     */
+    int matchChar(char c);
+
+    /**
+     * 判断词段是否成词，不需要{@link Hit}时使用.
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 是否成词.
+     */
+    boolean contains(char[] charArray, int begin, int length);
+
+    /**
+     * 批量加载和屏蔽词条，不修改当前实例，返回包含修改的新实例.
+     * 同一词条同时出现在两个列表中时以屏蔽为准.
+     *
+     * @param added 加载的词条.
+     * @param disabled 屏蔽的词条.
+     * @return 更新后的词典树.
+     */
+    DictTrie update(Collection<char[]> added, Collection<char[]> disabled);
+}
@@ -0,0 +1,162 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.Collection;
+
+/**
+ * 词典的一个不可变版本. <br/>
+ * 词典更新时不修改已发布的版本，而是基于当前版本生成包含修改的新版本后原子替换.
+ * 分词时每个缓冲区取一次当前版本，整个缓冲区的检索都在同一版本上进行，不加锁，也不会读到更新了一半的词典.
+ */
+public final class DictVersion {
+
+    private final long version;
+
+    final DictTrie mainTrie;
+
+    final DictTrie quantifierTrie;
+
+    final DictTrie stopWordTrie;
+
+    DictVersion(long version, DictTrie mainTrie, DictTrie quantifierTrie, DictTrie stopWordTrie) {
+        this.version = version;
+        this.mainTrie = mainTrie;
+        this.quantifierTrie = quantifierTrie;
+        this.stopWordTrie = stopWordTrie;
+    }
+
+    /**
+     * @return 版本号，每次更新递增.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 检索匹配主词库.
+     * @param charArray
+     * @return 匹配结果描述对象Hit.
+     */
+    public Hit matchInMainDict(char[] charArray) {
+        return mainTrie.match(charArray);
+    }
+
+    /**
+     * 检索匹配主词典
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 匹配结果描述对象Hit.
+     */
+    public Hit matchInMainDict(char[] charArray, int begin, int length) {
+        return mainTrie.match(charArray, begin, length);
+    }
+
+    /**
+     * 单字检索主词典，不创建{@link Hit}，用于快速跳过不在词典中的字.
+     * @param c
+     * @return 匹配状态，{@link Hit#MATCH}、{@link Hit#PREFIX}的组合.
+     */
+    public int matchCharInMainDict(char c) {
+        return mainTrie.matchChar(c);
+    }
+
+    /**
+     * 检索匹配量词词典
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return 匹配结果描述对象Hit.
+     */
+    public Hit matchInQuantifierDict(char[] charArray, int begin, int length) {
+        return quantifierTrie.match(charArray, begin, length);
+    }
+
+    /**
+     * 从已匹配的Hit继续向下匹配，Hit总是在产生它的版本上继续匹配.
+     * @param charArray
+     * @param currentIndex
+     * @param matchedHit
+     * @return 匹配结果描述对象Hit.
+     */
+    public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+        return matchedHit.getMatchedTrie().matchWithHit(charArray, currentIndex, matchedHit);
+    }
+
+    /**
+     * 判断是否是停用词.
+     * @param charArray
+     * @return
+     */
+    public boolean isStopWord(char[] charArray) {
+        return stopWordTrie.contains(charArray, 0, charArray.length);
+    }
+
+    /**
+     * 判断是否是停用词.
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return
+     */
+    public boolean isStopWord(char[] charArray, int begin, int length) {
+        return stopWordTrie.contains(charArray, begin, length);
+    }
+
+    /**
+     * 获取主词典的多模式匹配自动机.
+     * @return 自动机，词典引擎不支持时返回null.
+     */
+    public DictAutomaton getMainAutomaton() {
+        if (mainTrie instanceof DictAutomaton) {
+            return (DictAutomaton) mainTrie;
+        }
+        return null;
+    }
+
+    /**
+     * 批量修改主词典，生成新版本，当前版本不变.
+     * @param added 加载的词条.
+     * @param disabled 屏蔽的词条，同一词条同时出现时以屏蔽为准.
+     * @return 新版本.
+     */
+    DictVersion update(Collection<char[]> added, Collection<char[]> disabled) {
+        return new DictVersion(version + 1, mainTrie.update(added, disabled), quantifierTrie, stopWordTrie);
+    }
+
+    /**
+     * 替换重建的词典，生成新版本，当前版本不变.
+     * @param mainTrie 重建的主词典，为null时沿用当前版本.
+     * @param stopWordTrie 重建的停止词词典，为null时沿用当前版本.
+     * @return 新版本.
+     */
+    DictVersion replace(DictTrie mainTrie, DictTrie stopWordTrie) {
+        return new DictVersion(version + 1,
+                               mainTrie != null ? mainTrie : this.mainTrie,
+                               quantifierTrie,
+                               stopWordTrie != null ? stopWordTrie : this.stopWordTrie);
+    }
+}
@@ -28,10 +28,11 @@ import com.geohey.ikanalyzer.cfg.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.Files;
 import java.util.List;
 
 /**
@@ -44,14 +45,20 @@ public final class Dictionary extends AbstractDictionary {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Dictionary.class);
 
-    private static final String RESOURCE_ENCODING = "UTF-8";
-
-    private static AbstractDictionary singleton;
+    private static IDictionary singleton;
 
     private Dictionary(Configuration cfg) {
         super(cfg);
     }
 
+    /**
+     * @param cfg 配置.
+     * @param useSnapshot 是否优先加载预编译的词典快照.
+     */
+    Dictionary(Configuration cfg, boolean useSnapshot) {
+        super(cfg, useSnapshot);
+    }
+
     public static IDictionary getSingleton(){
         if(singleton == null){
 
@@ -64,7 +71,7 @@ public final class Dictionary extends AbstractDictionary {
      * 由于IK Analyzer的词典采用Dictionary类的静态方法进行词典初始化，
      * 并采用 Lazy Load 的方法加载Dictioanary中的资源。<br/>
      * 该方法提供了一个在应用加载阶段就初始化字典的手段，但是只有第一次设置的cfg才有效果。
-     * 另外，多线程情况并不能保证第一个访问的线程的cfg有效.
+     * 另外，多线程情况并不能保证第一个访问的线程的cfg有效. 需要使用多套配置时，通过{@link #open(Configuration)}创建词典实例.
      *
      * @param cfg
      * @return {@link IDictionary}实例对象.
@@ -74,7 +81,7 @@ public final class Dictionary extends AbstractDictionary {
             if (singleton == null) {
                 synchronized (Dictionary.class) {
                     if (singleton == null) {
-                        singleton = new Dictionary(cfg);
+                        singleton = open(cfg);
                         return singleton;
                     }
                 }
@@ -85,7 +92,21 @@ public final class Dictionary extends AbstractDictionary {
     }
 
     /**
-     * 加载主词典及扩展词库.
+     * 按配置创建词典实例，可以传给{@link com.geohey.ikanalyzer.core.IKSegmenter}. <br/>
+     * 词典文件相同的实例共享检索结构，只占用一份内存；各实例通过{@link IDictionary#updateWords}做的修改互不影响.
+     * 配置了文件系统中的词典时，实例监视这些文件. 实例用完后需调用{@link IDictionary#close()}.
+     *
+     * @param cfg 配置.
+     * @return {@link IDictionary}实例对象.
+     */
+    public static IDictionary open(Configuration cfg) {
+        Dictionary dictionary = new Dictionary(cfg);
+        dictionary.startReloader();
+        return dictionary;
+    }
+
+    /**
+     * 加载主词典，扩展词典由{@link #loadExtDict()}加载.
      */
     @Override
     protected void loadMainDict() {
@@ -94,9 +115,6 @@ public final class Dictionary extends AbstractDictionary {
         LOGGER.info("加载主词典：{}", key);
 
         _MainDict = loadDict(_MainDict, key);
-
-        // 加载扩展词条到主词典
-        loadExtDict();
     }
 
     @Override
@@ -109,7 +127,7 @@ public final class Dictionary extends AbstractDictionary {
     }
 
     @Override
-    protected void loadExtDict() {
+    protected void loadExtDict() throws IOException {
 
         List<String> extKeys = cfg.getExtDictionarys();
         if (extKeys != null) {
@@ -119,10 +137,16 @@ public final class Dictionary extends AbstractDictionary {
                 _MainDict = loadDict(_MainDict, extKey);
             }
         }
+
+        for (String path : cfg.getExtDictionaryFiles()) {
+            LOGGER.info("加载扩展词典文件：{}", path);
+
+            _MainDict = loadFileDict(_MainDict, path);
+        }
     }
 
     @Override
-    protected void loadStopWordDict() {
+    protected void loadStopWordDict() throws IOException {
 
         List<String> stopKeys = cfg.getExtStopWordDictionarys();
         if (stopKeys != null) {
@@ -133,6 +157,11 @@ public final class Dictionary extends AbstractDictionary {
             }
         }
 
+        for (String path : cfg.getExtStopWordDictionaryFiles()) {
+            LOGGER.info("加载停止词典文件：{}", path);
+
+            _StopWordDict = loadFileDict(_StopWordDict, path);
+        }
     }
 
     protected DictSegment loadDict(DictSegment ds, String key) {
@@ -147,36 +176,66 @@ public final class Dictionary extends AbstractDictionary {
             throw new RuntimeException(String.format("%s Dictionary not found!!!", key));
         }
 
-        BufferedReader bufReader = null;
         try {
-            bufReader = new BufferedReader(new InputStreamReader(in, RESOURCE_ENCODING), 512);
-
-            String word = null;
-            do {
-                word = bufReader.readLine();
-                if (word != null && !"".equals(word.trim())) {
-                    char[] chs = word.trim().toLowerCase().toCharArray();
-                    ds.fillSegment(chs);
-                }
-            } while (word != null);
-
+            fillDict(ds, readFully(in));
         } catch (IOException e) {
             LOGGER.error("加载配置文件 {} 异常, {}", key, e);
         } finally {
             try {
-                if (bufReader != null) {
-                    bufReader.close();
-                }
-
-                if (in != null) {
-                    in.close();
-                }
+                in.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+        return ds;
+    }
+
+    /**
+     * 加载文件系统中的词典. 初始化时文件不存在或读取失败视为空词典，重新加载时抛出异常.
+     * @throws IOException 重新加载时文件不存在或读取失败.
+     */
+    protected DictSegment loadFileDict(DictSegment ds, String path) throws IOException {
+
+        if (ds == null) {
+            ds = new DictSegment((char) 0);
+        }
+
+        File file = new File(path);
+        if (!reloading && !file.isFile()) {
+            LOGGER.warn("词典文件 {} 不存在", path);
+            return ds;
+        }
 
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            if (reloading) {
+                throw e;
+            }
+            LOGGER.error("加载词典文件 {} 异常, {}", path, e);
+            return ds;
+        }
+        fillDict(ds, bytes);
         return ds;
+    }
 
+    /**
+     * 并行解析词典内容并填充词典树.
+     */
+    private void fillDict(DictSegment ds, byte[] bytes) {
+        List<char[]> words = DictLoader.parse(bytes);
+        DictLoader.fill(ds, words);
+        loadedWords += words.size();
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
     }
 }
@@ -0,0 +1,89 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import com.geohey.ikanalyzer.cfg.Configuration;
+import com.geohey.ikanalyzer.cfg.DefaultConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 词典编译器. <br/>
+ * 将{@code IKAnalyzer.cfg.xml}中配置的主词典、量词词典、扩展词典和停止词词典编译为一个二进制快照，
+ * 配置{@code dict_snapshot}指向该文件后，双数组引擎启动时直接加载快照.
+ * 词典文件更新后需重新编译，否则快照会因指纹不一致被忽略.
+ * <pre>
+ * java -cp ik-analyzer.jar com.geohey.ikanalyzer.dic.DictionaryCompiler [输出文件]
+ * </pre>
+ */
+public final class DictionaryCompiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryCompiler.class);
+
+    private DictionaryCompiler() {
+    }
+
+    /**
+     * 由文本词典编译快照.
+     * @param cfg 词典配置.
+     * @param output 输出文件.
+     * @throws IOException 写入失败.
+     */
+    public static void compile(Configuration cfg, File output) throws IOException {
+        long begin = System.currentTimeMillis();
+
+        DictVersion version = new Dictionary(cfg, false).snapshot();
+        DictSnapshot.write(output,
+                           DictSnapshot.fingerprint(cfg, Dictionary.class.getClassLoader()),
+                           toDoubleArray(version.mainTrie),
+                           toDoubleArray(version.quantifierTrie),
+                           toDoubleArray(version.stopWordTrie));
+
+        LOGGER.info("编译词典快照 {} 完成，文件大小：{}字节，耗时：{}ms",
+                    output, output.length(), System.currentTimeMillis() - begin);
+    }
+
+    private static DoubleArrayTrie toDoubleArray(DictTrie trie) {
+        if (trie instanceof DoubleArrayTrie) {
+            return (DoubleArrayTrie) trie;
+        }
+        return DoubleArrayTrie.build((DictSegment) trie);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Configuration cfg = DefaultConfig.getSingleton();
+
+        String output = args.length > 0 ? args[0] : cfg.getDictSnapshot();
+        if (output == null) {
+            System.err.println("Usage: DictionaryCompiler <snapshot file>");
+            System.exit(1);
+        }
+
+        compile(cfg, new File(output));
+    }
+}
@@ -0,0 +1,737 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 堆内数组存储的双数组(base/check)词典树. <br/>
+ * 由{@link DictSegment}词典树一次性编译生成，编译后只读. 相比对象树，节点只占用数组中的两个int，
+ * 检索时只做下标运算，没有装箱和指针跳转.
+ * <p>
+ * 编译时按字符在词典中出现的频率重新编码(code从1开始，越常用越小)，使子节点的编码集中，数组更紧凑.
+ * </p>
+ */
+final class DoubleArrayTrie extends AbstractDoubleArrayTrie {
+
+    /**
+     * 编译时数组的初始容量.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * 字符编码表，0表示词典中没有该字符.
+     */
+    private final char[] codes;
+
+    /**
+     * 子节点的偏移基址.
+     */
+    private final int[] base;
+
+    /**
+     * 父节点下标.
+     */
+    private final int[] check;
+
+    /**
+     * 成词标记，按位存储.
+     */
+    private final long[] words;
+
+    /**
+     * 失败链接.
+     */
+    private final int[] fail;
+
+    /**
+     * 输出链接.
+     */
+    private final int[] output;
+
+    /**
+     * 节点深度.
+     */
+    private final char[] depth;
+
+    /**
+     * 节点或其失败链上存在词前缀的标记，按位存储.
+     */
+    private final long[] prefixChain;
+
+    private DoubleArrayTrie(char[] codes, int[] base, int[] check, long[] words,
+                            int[] fail, int[] output, char[] depth, long[] prefixChain) {
+        this.codes = codes;
+        this.base = base;
+        this.check = check;
+        this.words = words;
+        this.fail = fail;
+        this.output = output;
+        this.depth = depth;
+        this.prefixChain = prefixChain;
+    }
+
+    /**
+     * 将词典树编译为双数组.
+     * @param root 词典树的根节点.
+     * @return 双数组词典.
+     */
+    static DoubleArrayTrie build(DictSegment root) {
+        return new Builder().build(root);
+    }
+
+    @Override
+    int code(char c) {
+        return codes[c];
+    }
+
+    @Override
+    int base(int state) {
+        return base[state];
+    }
+
+    @Override
+    int check(int state) {
+        return check[state];
+    }
+
+    @Override
+    boolean isWord(int state) {
+        return (words[state >>> 6] & (1L << state)) != 0;
+    }
+
+    @Override
+    int capacity() {
+        return check.length;
+    }
+
+    @Override
+    int fail(int state) {
+        return fail[state];
+    }
+
+    @Override
+    int output(int state) {
+        return output[state];
+    }
+
+    @Override
+    int depth(int state) {
+        return depth[state];
+    }
+
+    @Override
+    boolean isPrefixChain(int state) {
+        return (prefixChain[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * @return 序列化后占用的字节数.
+     */
+    int byteSize() {
+        return 4 + codes.length * 2 + 4 + check.length * 16 + 4 + words.length * 16 + depth.length * 2;
+    }
+
+    /**
+     * 将双数组写入缓冲区，格式: 编码表长度、编码表、数组长度、base、check、fail、output、
+     * 位图长度、成词位图、前缀位图、depth.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(codes.length);
+        buffer.asCharBuffer().put(codes);
+        buffer.position(buffer.position() + codes.length * 2);
+
+        buffer.putInt(check.length);
+        for (int[] array : new int[][] {base, check, fail, output}) {
+            buffer.asIntBuffer().put(array);
+            buffer.position(buffer.position() + array.length * 4);
+        }
+
+        buffer.putInt(words.length);
+        for (long[] bits : new long[][] {words, prefixChain}) {
+            buffer.asLongBuffer().put(bits);
+            buffer.position(buffer.position() + bits.length * 8);
+        }
+
+        buffer.asCharBuffer().put(depth);
+        buffer.position(buffer.position() + depth.length * 2);
+    }
+
+    /**
+     * 从缓冲区读取{@link #writeTo(ByteBuffer)}写入的双数组.
+     * @throws IOException 各段长度与缓冲区剩余内容不符.
+     */
+    static DoubleArrayTrie readFrom(ByteBuffer buffer) throws IOException {
+        char[] codes = new char[readCodesLength(buffer)];
+        buffer.asCharBuffer().get(codes);
+        buffer.position(buffer.position() + codes.length * 2);
+
+        int length = readLength(buffer);
+        int[][] arrays = new int[4][length];
+        for (int[] array : arrays) {
+            buffer.asIntBuffer().get(array);
+            buffer.position(buffer.position() + length * 4);
+        }
+
+        int wordsLength = readWordsLength(buffer, length);
+        long[][] bits = new long[2][wordsLength];
+        for (long[] array : bits) {
+            buffer.asLongBuffer().get(array);
+            buffer.position(buffer.position() + wordsLength * 8);
+        }
+
+        char[] depth = new char[length];
+        buffer.asCharBuffer().get(depth);
+        buffer.position(buffer.position() + length * 2);
+
+        return new DoubleArrayTrie(codes, arrays[0], arrays[1], bits[0], arrays[2], arrays[3], depth, bits[1]);
+    }
+
+    /**
+     * 读取编码表长度，并校验缓冲区中有足够的内容.
+     */
+    static int readCodesLength(ByteBuffer buffer) throws IOException {
+        int codesLength = readInt(buffer);
+        if (codesLength < 0 || codesLength > Character.MAX_VALUE + 1) {
+            throw new IOException("invalid code table length " + codesLength);
+        }
+        require(buffer, codesLength * 2L);
+        return codesLength;
+    }
+
+    /**
+     * 读取双数组长度，并校验缓冲区中有足够的内容容纳base、check、fail、output四个数组.
+     */
+    static int readLength(ByteBuffer buffer) throws IOException {
+        int length = readInt(buffer);
+        if (length < 0) {
+            throw new IOException("invalid double array length " + length);
+        }
+        require(buffer, length * 16L);
+        return length;
+    }
+
+    /**
+     * 读取位图长度，并校验其与双数组长度一致，且缓冲区中有足够的内容容纳两个位图和depth数组.
+     */
+    static int readWordsLength(ByteBuffer buffer, int length) throws IOException {
+        int wordsLength = readInt(buffer);
+        if (wordsLength != (length >>> 6) + 1) {
+            throw new IOException(String.format("bitmap length %d does not match double array length %d", wordsLength, length));
+        }
+        require(buffer, wordsLength * 16L + length * 2L);
+        return wordsLength;
+    }
+
+    private static int readInt(ByteBuffer buffer) throws IOException {
+        require(buffer, 4);
+        return buffer.getInt();
+    }
+
+    private static void require(ByteBuffer buffer, long bytes) throws IOException {
+        if (bytes > buffer.remaining()) {
+            throw new IOException(String.format("truncated double array: %d bytes required at %d, %d remaining",
+                                                bytes, buffer.position(), buffer.remaining()));
+        }
+    }
+
+    /**
+     * 双数组编译器. 按广度优先顺序为每个节点寻找能容纳其全部子节点的基址.
+     * <p>
+     * 根节点的子节点先放置在数组头部. 根节点下各子树按大小分为固定数量的组，每组在独立的片段中并行放置，
+     * 片段的下标从0开始，放置完成后依次拼接到数组尾部并平移下标. 分组只取决于词典内容，编译结果与线程数和调度无关.
+     * </p>
+     */
+    private static final class Builder {
+
+        /**
+         * 子树分组数，决定编译可利用的最大线程数. 各片段尾部难以填满，分组越多数组越长.
+         */
+        private static final int FRAGMENTS = 8;
+
+        private final char[] codes = new char[Character.MAX_VALUE + 1];
+
+        private int[] base;
+
+        private int[] check;
+
+        private long[] words;
+
+        /**
+         * 按广度优先顺序展开的各节点的子节点，下标为节点序号.
+         */
+        private DictSegment[][] childrenOf;
+
+        /**
+         * 各节点第一个子节点的序号，同一节点的子节点序号连续.
+         */
+        private int[] firstChildOf;
+
+        /**
+         * 各节点在双数组中的下标.
+         */
+        private int[] stateOf;
+
+        DoubleArrayTrie build(DictSegment root) {
+            this.flatten(root);
+            this.encode();
+
+            Fragment top = new Fragment();
+            top.used[0] = 1L << ROOT;
+            if (childrenOf[0].length > 0) {
+                top.place(new Pending(0, ROOT, childrenOf[0].length, false), null);
+            }
+
+            final Fragment[] fragments = this.partition();
+            List<RecursiveAction> tasks = new ArrayList<>(fragments.length);
+            for (final Fragment fragment : fragments) {
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        fragment.placeAll();
+                    }
+                });
+            }
+            DictLoader.invokeAll(tasks);
+
+            int length = top.length();
+            for (Fragment fragment : fragments) {
+                length += fragment.length();
+            }
+            base = new int[length];
+            check = new int[length];
+            words = new long[(length >>> 6) + 1];
+            Arrays.fill(check, EMPTY);
+
+            top.copyTo(0);
+            int offset = top.length();
+            for (Fragment fragment : fragments) {
+                fragment.copyTo(offset);
+                offset += fragment.length();
+            }
+
+            int[] fail = new int[length];
+            int[] output = new int[length];
+            char[] depth = new char[length];
+            long[] prefixChain = new long[(length >>> 6) + 1];
+            this.link(fail, output, depth, prefixChain);
+
+            return new DoubleArrayTrie(codes, base, check, words, fail, output, depth, prefixChain);
+        }
+
+        /**
+         * 将根节点下有子节点的子树分为{@link #FRAGMENTS}组，较大的子树优先分入当前节点数最少的组.
+         */
+        private Fragment[] partition() {
+            final int[] size = new int[childrenOf.length];
+            for (int node = childrenOf.length - 1; node >= 0; node--) {
+                size[node] = 1;
+                for (int i = 0; i < childrenOf[node].length; i++) {
+                    size[node] += size[firstChildOf[node] + i];
+                }
+            }
+
+            List<Integer> subtrees = new ArrayList<>();
+            for (int i = 0; i < childrenOf[0].length; i++) {
+                int child = firstChildOf[0] + i;
+                if (childrenOf[child].length > 0) {
+                    subtrees.add(child);
+                }
+            }
+            Collections.sort(subtrees, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer n1, Integer n2) {
+                    return size[n1] != size[n2] ? size[n2] - size[n1] : n1 - n2;
+                }
+            });
+
+            Fragment[] fragments = new Fragment[Math.min(FRAGMENTS, subtrees.size())];
+            long[] load = new long[fragments.length];
+            for (int i = 0; i < fragments.length; i++) {
+                fragments[i] = new Fragment();
+            }
+            for (int child : subtrees) {
+                int lightest = 0;
+                for (int i = 1; i < load.length; i++) {
+                    if (load[i] < load[lightest]) {
+                        lightest = i;
+                    }
+                }
+                fragments[lightest].roots.add(new Pending(child, stateOf[child], childrenOf[child].length, true));
+                load[lightest] += size[child];
+            }
+            return fragments;
+        }
+
+        /**
+         * 按广度优先顺序生成Aho-Corasick自动机的失败链接和输出链接.
+         * 节点的失败链接总是比自身浅，处理到某节点时其失败链上的节点均已处理完毕.
+         */
+        private void link(int[] fail, int[] output, char[] depth, long[] prefixChain) {
+            for (int node = 0; node < childrenOf.length; node++) {
+                int s = stateOf[node];
+                DictSegment[] children = childrenOf[node];
+
+                for (int i = 0; i < children.length; i++) {
+                    int t = stateOf[firstChildOf[node] + i];
+                    int code = codes[children[i].getNodeChar()];
+
+                    int f = ROOT;
+                    if (s != ROOT) {
+                        for (int r = fail[s]; ; r = fail[r]) {
+                            int g = base[r] + code;
+                            if (g < check.length && check[g] == r) {
+                                f = g;
+                                break;
+                            }
+                            if (r == ROOT) {
+                                break;
+                            }
+                        }
+                    }
+
+                    fail[t] = f;
+                    output[t] = isSet(words, f) ? f : output[f];
+                    depth[t] = (char) (depth[s] + 1);
+                    if (base[t] != 0 || isSet(prefixChain, f)) {
+                        prefixChain[t >>> 6] |= 1L << t;
+                    }
+                }
+            }
+        }
+
+        private static boolean isSet(long[] bits, int index) {
+            return (bits[index >>> 6] & (1L << index)) != 0;
+        }
+
+        /**
+         * 广度优先展开词典树，每个节点只读取一次子节点.
+         */
+        private void flatten(DictSegment root) {
+            List<DictSegment[]> children = new ArrayList<>();
+            List<Integer> firstChildren = new ArrayList<>();
+            children.add(root.getChildren());
+            int count = 1;
+
+            for (int i = 0; i < children.size(); i++) {
+                firstChildren.add(count);
+                for (DictSegment child : children.get(i)) {
+                    children.add(child.getChildren());
+                    count++;
+                }
+            }
+
+            childrenOf = children.toArray(new DictSegment[children.size()][]);
+            stateOf = new int[childrenOf.length];
+            firstChildOf = new int[firstChildren.size()];
+            for (int i = 0; i < firstChildOf.length; i++) {
+                firstChildOf[i] = firstChildren.get(i);
+            }
+        }
+
+        /**
+         * 统计各字符作为边出现的次数，按频率从高到低分配编码.
+         */
+        private void encode() {
+            final int[] frequency = new int[Character.MAX_VALUE + 1];
+            for (DictSegment[] children : childrenOf) {
+                for (DictSegment child : children) {
+                    frequency[child.getNodeChar()]++;
+                }
+            }
+
+            List<Character> alphabet = new ArrayList<>();
+            for (int c = 0; c < frequency.length; c++) {
+                if (frequency[c] > 0) {
+                    alphabet.add((char) c);
+                }
+            }
+            Collections.sort(alphabet, new Comparator<Character>() {
+                @Override
+                public int compare(Character c1, Character c2) {
+                    return frequency[c2] - frequency[c1];
+                }
+            });
+
+            for (int i = 0; i < alphabet.size(); i++) {
+                codes[alphabet.get(i)] = (char) (i + 1);
+            }
+        }
+
+        /**
+         * 双数组的一个片段，独立寻找基址，下标从0开始.
+         * 片段内放置的节点的父节点可能位于数组头部(根节点的子节点)，这类父节点称为外部父节点，
+         * 其下标在check中记为 -2 - 下标，拼接时不平移.
+         */
+        private final class Fragment {
+
+            private int[] base = new int[INITIAL_CAPACITY];
+
+            private int[] check = new int[INITIAL_CAPACITY];
+
+            private long[] words = new long[INITIAL_CAPACITY >>> 6];
+
+            /**
+             * 已占用位置的位图，用于一次检查64个候选基址.
+             */
+            private long[] used = new long[(INITIAL_CAPACITY >>> 6) + 1];
+
+            /**
+             * 寻找基址的起始位置，其之前的区域已基本占满.
+             */
+            private int nextCheckPos = ROOT + 1;
+
+            /**
+             * 已使用的最大下标.
+             */
+            private int maxIndex = ROOT;
+
+            /**
+             * 子节点由本片段放置的外部父节点.
+             */
+            private final List<Pending> roots = new ArrayList<>();
+
+            /**
+             * 外部父节点的基址，与roots一一对应.
+             */
+            private int[] rootBases;
+
+            /**
+             * 本片段放置的节点序号.
+             */
+            private int[] nodes = new int[1024];
+
+            private int nodeCount;
+
+            Fragment() {
+                Arrays.fill(check, EMPTY);
+            }
+
+            int length() {
+                return maxIndex + 1;
+            }
+
+            /**
+             * 放置全部外部父节点的子树，子节点越多越难找到空闲位置，优先在数组还稀疏时放置.
+             */
+            void placeAll() {
+                rootBases = new int[roots.size()];
+                PriorityQueue<Pending> pendings = new PriorityQueue<>();
+                for (int i = 0; i < roots.size(); i++) {
+                    Pending root = roots.get(i);
+                    rootBases[i] = this.place(root, pendings);
+                }
+                while (!pendings.isEmpty()) {
+                    this.place(pendings.poll(), pendings);
+                }
+            }
+
+            /**
+             * 放置一个节点的全部子节点，有子节点的子节点加入pendings.
+             * @return 基址.
+             */
+            int place(Pending pending, PriorityQueue<Pending> pendings) {
+                DictSegment[] children = childrenOf[pending.node];
+
+                int[] childCodes = new int[children.length];
+                for (int i = 0; i < children.length; i++) {
+                    childCodes[i] = codes[children[i].getNodeChar()];
+                }
+                Arrays.sort(childCodes);
+
+                int b = this.findBase(childCodes);
+                int parent = pending.external ? -2 - pending.state : pending.state;
+                if (!pending.external) {
+                    base[pending.state] = b;
+                }
+
+                for (int i = 0; i < children.length; i++) {
+                    int t = b + codes[children[i].getNodeChar()];
+                    check[t] = parent;
+                    used[t >>> 6] |= 1L << t;
+                    if (children[i].isWord()) {
+                        words[t >>> 6] |= 1L << t;
+                    }
+                    if (t > maxIndex) {
+                        maxIndex = t;
+                    }
+
+                    int child = firstChildOf[pending.node] + i;
+                    stateOf[child] = t;
+                    if (nodeCount == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, nodeCount * 2);
+                    }
+                    nodes[nodeCount++] = child;
+                    if (pendings != null && childrenOf[child].length > 0) {
+                        pendings.add(new Pending(child, t, childrenOf[child].length, false));
+                    }
+                }
+                return b;
+            }
+
+            /**
+             * 将片段平移offset后写入编译结果.
+             */
+            void copyTo(int offset) {
+                int[] base = Builder.this.base;
+                int[] check = Builder.this.check;
+                long[] words = Builder.this.words;
+
+                for (int t = 0; t <= maxIndex; t++) {
+                    // 根节点没有父节点，但有基址
+                    if (this.base[t] != 0) {
+                        base[t + offset] = this.base[t] + offset;
+                    }
+                    int parent = this.check[t];
+                    if (parent == EMPTY) {
+                        continue;
+                    }
+                    check[t + offset] = parent >= 0 ? parent + offset : -2 - parent;
+                    if (isSet(this.words, t)) {
+                        words[(t + offset) >>> 6] |= 1L << (t + offset);
+                    }
+                }
+                for (int i = 0; i < roots.size(); i++) {
+                    base[roots.get(i).state] = rootBases[i] + offset;
+                }
+                for (int i = 0; i < nodeCount; i++) {
+                    stateOf[nodes[i]] += offset;
+                }
+            }
+
+            /**
+             * 寻找基址b，使得所有子节点的位置 b + code 均为空闲.
+             * 以64个连续的候选基址为一组，将各子节点位置对应的占用位图相或，结果中为0的位即可用的基址.
+             */
+            private int findBase(int[] childCodes) {
+                int first = childCodes[0];
+                int last = childCodes[childCodes.length - 1];
+
+                for (int b = Math.max(nextCheckPos - first, 1); ; b += Long.SIZE) {
+                    this.ensureCapacity(b + last + Long.SIZE);
+
+                    long conflicts = 0L;
+                    for (int i = 0; i < childCodes.length && conflicts != -1L; i++) {
+                        conflicts |= this.usedBits(b + childCodes[i]);
+                    }
+
+                    if (conflicts != -1L) {
+                        b += Long.numberOfTrailingZeros(~conflicts);
+
+                        // 起始位置到当前位置的区域已占用95%以上，下次从当前位置开始寻找
+                        int pos = b + first;
+                        if (pos > nextCheckPos && this.countUsed(nextCheckPos, pos) >= 0.95 * (pos - nextCheckPos)) {
+                            nextCheckPos = pos;
+                        }
+                        return b;
+                    }
+                }
+            }
+
+            /**
+             * @return 区间[from, to)内已占用的位置数.
+             */
+            private int countUsed(int from, int to) {
+                int count = 0;
+                for (int index = from; index < to; index += Long.SIZE) {
+                    long bits = this.usedBits(index);
+                    if (to - index < Long.SIZE) {
+                        bits &= (1L << (to - index)) - 1;
+                    }
+                    count += Long.bitCount(bits);
+                }
+                return count;
+            }
+
+            /**
+             * @return 从index开始的64个位置的占用位图，第i位对应位置index + i.
+             */
+            private long usedBits(int index) {
+                int word = index >>> 6;
+                int shift = index & 63;
+                if (shift == 0) {
+                    return used[word];
+                }
+                return (used[word] >>> shift) | (used[word + 1] << (Long.SIZE - shift));
+            }
+
+            private void ensureCapacity(int index) {
+                if (index < check.length) {
+                    return;
+                }
+
+                int length = check.length;
+                while (length <= index) {
+                    length <<= 1;
+                }
+
+                base = Arrays.copyOf(base, length);
+                words = Arrays.copyOf(words, length >>> 6);
+                int oldLength = check.length;
+                check = Arrays.copyOf(check, length);
+                Arrays.fill(check, oldLength, length, EMPTY);
+                used = Arrays.copyOf(used, (length >>> 6) + 1);
+            }
+
+        }
+
+        /**
+         * 已分配位置、等待放置子节点的节点.
+         */
+        private static final class Pending implements Comparable<Pending> {
+
+            private final int node;
+
+            private final int state;
+
+            private final int width;
+
+            /**
+             * 节点是否位于其他片段.
+             */
+            private final boolean external;
+
+            Pending(int node, int state, int width, boolean external) {
+                this.node = node;
+                this.state = state;
+                this.width = width;
+                this.external = external;
+            }
+
+            @Override
+            public int compareTo(Pending o) {
+                return o.width - this.width;
+            }
+        }
+    }
+}
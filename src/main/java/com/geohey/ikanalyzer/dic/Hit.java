@@ -36,17 +36,17 @@ public class Hit {
     /**
      * Hit不匹配.
      */
-    private final static int UNMATCH = 0x00000000;
+    public final static int UNMATCH = 0x00000000;
 
     /**
      * Hit完全匹配.
      */
-    private final static int MATCH = 0x00000001;
+    public final static int MATCH = 0x00000001;
 
     /**
      * Hit前缀匹配.
      */
-    private final static int PREFIX = 0x00000010;
+    public final static int PREFIX = 0x00000010;
 
     /**
      * 该HIT当前状态，默认未匹配.
@@ -58,6 +58,21 @@ public class Hit {
      */
     private DictSegment matchedDictSegment;
 
+    /**
+     * 记录词典匹配过程中，当前匹配到的词典树，用于继续向下匹配.
+     */
+    private DictTrie matchedTrie;
+
+    /**
+     * 记录词典匹配过程中，当前匹配到的状态(双数组词典的节点下标).
+     */
+    private int matchedState;
+
+    /**
+     * 记录分层词典匹配过程中，各层的匹配结果，用于继续向下匹配.
+     */
+    private Hit[] layerHits;
+
     /*
 	 * 词段开始位置.
 	 */
@@ -116,6 +131,29 @@ public class Hit {
 
     public void setMatchedDictSegment(DictSegment matchedDictSegment) {
         this.matchedDictSegment = matchedDictSegment;
+        this.matchedTrie = matchedDictSegment;
+    }
+
+    DictTrie getMatchedTrie() {
+        return matchedTrie;
+    }
+
+    int getMatchedState() {
+        return matchedState;
+    }
+
+    void setMatchedState(DictTrie matchedTrie, int matchedState) {
+        this.matchedTrie = matchedTrie;
+        this.matchedState = matchedState;
+    }
+
+    Hit[] getLayerHits() {
+        return layerHits;
+    }
+
+    void setLayerHits(DictTrie matchedTrie, Hit[] layerHits) {
+        this.matchedTrie = matchedTrie;
+        this.layerHits = layerHits;
     }
 
     public int getBegin() {
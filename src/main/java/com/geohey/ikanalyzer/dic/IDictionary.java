@@ -26,15 +26,17 @@ package com.geohey.ikanalyzer.dic;
 
 import com.geohey.ikanalyzer.cfg.Configuration;
 
+import java.io.Closeable;
 import java.util.Collection;
 
 /**
- * 词库操作接口.
+ * 词库操作接口. <br/>
+ * 词典实例由{@link Dictionary#open(com.geohey.ikanalyzer.cfg.Configuration)}创建后传给分词器，用完后关闭.
  *
  * @author Jingyi Yu.
  *
  */
-public interface IDictionary {
+public interface IDictionary extends Closeable {
 
     /**
      * 批量加载新词条.
@@ -48,6 +50,19 @@ public interface IDictionary {
      */
     void disableWords(Collection<String> words);
 
+    /**
+     * 批量加载和屏蔽词条，所有修改在同一个新版本中发布.
+     * @param addedWords 加载的词条，可为null.
+     * @param disabledWords 屏蔽的词条，可为null，同一词条同时出现时以屏蔽为准.
+     */
+    void updateWords(Collection<String> addedWords, Collection<String> disabledWords);
+
+    /**
+     * 获取当前发布的词典版本. 版本不可变，之后的更新不影响已获取的版本.
+     * @return 当前词典版本.
+     */
+    DictVersion snapshot();
+
     /**
      * 检索匹配主词库.
      * @param charArray
@@ -97,4 +112,21 @@ public interface IDictionary {
      * @return
      */
     boolean isStopWord(char[] charArray, int begin, int length);
+
+    /**
+     * 获取主词典的多模式匹配自动机.
+     * @return 自动机，词典引擎不支持时返回null.
+     */
+    DictAutomaton getMainAutomaton();
+
+    /**
+     * @return 监视文件系统词典的{@link DictReloader}，没有配置文件系统词典时返回null.
+     */
+    DictReloader getReloader();
+
+    /**
+     * 停止监视词典文件，释放共享的检索结构.
+     */
+    @Override
+    void close();
 }
@@ -0,0 +1,176 @@
+package com.geohey.ikanalyzer.dic;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 直接在内存映射文件上检索的双数组词典树. <br/>
+ * 数组保存在{@link DictSnapshot}快照文件中，通过只读的{@link java.nio.MappedByteBuffer}访问，不复制到堆内.
+ * 同一主机上映射同一快照文件的多个JVM共享操作系统页缓存中的一份物理内存，堆内只保留若干偏移量.
+ */
+final class MappedDoubleArrayTrie extends AbstractDoubleArrayTrie {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * 编码表的起始偏移.
+     */
+    private final int codesOffset;
+
+    /**
+     * 编码表长度.
+     */
+    private final int codesLength;
+
+    /**
+     * base数组的起始偏移.
+     */
+    private final int baseOffset;
+
+    /**
+     * check数组的起始偏移.
+     */
+    private final int checkOffset;
+
+    /**
+     * fail数组的起始偏移.
+     */
+    private final int failOffset;
+
+    /**
+     * output数组的起始偏移.
+     */
+    private final int outputOffset;
+
+    /**
+     * 成词位图的起始偏移.
+     */
+    private final int wordsOffset;
+
+    /**
+     * 前缀位图的起始偏移.
+     */
+    private final int prefixChainOffset;
+
+    /**
+     * depth数组的起始偏移.
+     */
+    private final int depthOffset;
+
+    /**
+     * 双数组长度.
+     */
+    private final int length;
+
+    private MappedDoubleArrayTrie(ByteBuffer buffer, int codesOffset, int codesLength, int length, int baseOffset,
+                                  int wordsOffset, int prefixChainOffset, int depthOffset) {
+        this.buffer = buffer;
+        this.codesOffset = codesOffset;
+        this.codesLength = codesLength;
+        this.length = length;
+        this.baseOffset = baseOffset;
+        this.checkOffset = baseOffset + length * 4;
+        this.failOffset = checkOffset + length * 4;
+        this.outputOffset = failOffset + length * 4;
+        this.wordsOffset = wordsOffset;
+        this.prefixChainOffset = prefixChainOffset;
+        this.depthOffset = depthOffset;
+    }
+
+    /**
+     * 在缓冲区的当前位置定位{@link DoubleArrayTrie#writeTo(ByteBuffer)}写入的双数组，并将位置移到其后.
+     * @param buffer 映射的快照文件.
+     * @return 内存映射双数组词典.
+     * @throws IOException 各段的偏移和长度超出映射的范围，或彼此不一致.
+     */
+    static MappedDoubleArrayTrie map(ByteBuffer buffer) throws IOException {
+        int codesLength = DoubleArrayTrie.readCodesLength(buffer);
+        int codesOffset = buffer.position();
+        buffer.position(codesOffset + codesLength * 2);
+
+        int length = DoubleArrayTrie.readLength(buffer);
+        int baseOffset = buffer.position();
+        buffer.position(baseOffset + length * 16);
+
+        int wordsLength = DoubleArrayTrie.readWordsLength(buffer, length);
+        int wordsOffset = buffer.position();
+        int prefixChainOffset = wordsOffset + wordsLength * 8;
+        int depthOffset = prefixChainOffset + wordsLength * 8;
+        buffer.position(depthOffset + length * 2);
+
+        return new MappedDoubleArrayTrie(buffer, codesOffset, codesLength, length, baseOffset,
+                                         wordsOffset, prefixChainOffset, depthOffset);
+    }
+
+    @Override
+    int code(char c) {
+        if (c >= codesLength) {
+            return 0;
+        }
+        return buffer.getChar(codesOffset + (c << 1));
+    }
+
+    @Override
+    int base(int state) {
+        return buffer.getInt(baseOffset + (state << 2));
+    }
+
+    @Override
+    int check(int state) {
+        return buffer.getInt(checkOffset + (state << 2));
+    }
+
+    @Override
+    boolean isWord(int state) {
+        return (buffer.getLong(wordsOffset + ((state >>> 6) << 3)) & (1L << state)) != 0;
+    }
+
+    @Override
+    int capacity() {
+        return length;
+    }
+
+    @Override
+    int fail(int state) {
+        return buffer.getInt(failOffset + (state << 2));
+    }
+
+    @Override
+    int output(int state) {
+        return buffer.getInt(outputOffset + (state << 2));
+    }
+
+    @Override
+    int depth(int state) {
+        return buffer.getChar(depthOffset + (state << 1));
+    }
+
+    @Override
+    boolean isPrefixChain(int state) {
+        return (buffer.getLong(prefixChainOffset + ((state >>> 6) << 3)) & (1L << state)) != 0;
+    }
+}
@@ -0,0 +1,199 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 分层词典，适用于多租户场景. <br/>
+ * 各租户共享同一个基础词典实例，每个租户只维护一层小的叠加词典树，记录本租户加载和屏蔽的词条.
+ * 检索时叠加层与基础词典同时匹配，{@link #matchWithHit}可跨层继续匹配；
+ * 基础词典不复制，每个租户占用的内存只与叠加层的词条数有关.
+ * <p>
+ * 叠加层只作用于主词典，量词词典和停止词词典沿用基础词典. 基础词典更新或重新加载后，下次获取版本时自动叠加到新版本上.
+ * 关闭分层词典不关闭基础词典.
+ * </p>
+ */
+public final class OverlayDictionary implements IDictionary {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OverlayDictionary.class);
+
+    private final IDictionary base;
+
+    /**
+     * 当前发布的版本及其所叠加的基础词典版本.
+     */
+    private volatile Layered current;
+
+    /**
+     * 版本号，叠加层或基础词典变化时递增.
+     */
+    private long version;
+
+    /**
+     * @param base 共享的基础词典.
+     */
+    public OverlayDictionary(IDictionary base) {
+        this.base = base;
+        DictVersion baseVersion = base.snapshot();
+        OverlayTrie mainTrie = new OverlayTrie(baseVersion.mainTrie, new DictSegment((char) 0), new DictSegment((char) 0));
+        this.current = new Layered(baseVersion, this.compose(baseVersion, mainTrie));
+    }
+
+    /**
+     * @return 基础词典.
+     */
+    public IDictionary getBase() {
+        return base;
+    }
+
+    @Override
+    public void addWords(Collection<String> words) {
+        this.updateWords(words, null);
+    }
+
+    @Override
+    public void disableWords(Collection<String> words) {
+        this.updateWords(null, words);
+    }
+
+    /**
+     * 只修改叠加层，基础词典不变.
+     */
+    @Override
+    public synchronized void updateWords(Collection<String> addedWords, Collection<String> disabledWords) {
+        List<char[]> added = AbstractDictionary.toCharArrays(addedWords);
+        List<char[]> disabled = AbstractDictionary.toCharArrays(disabledWords);
+        if (added.isEmpty() && disabled.isEmpty()) {
+            return ;
+        }
+
+        Layered layered = this.layered();
+        OverlayTrie mainTrie = (OverlayTrie) layered.version.mainTrie;
+        DictVersion updated = this.compose(layered.base, (OverlayTrie) mainTrie.update(added, disabled));
+        current = new Layered(layered.base, updated);
+
+        LOGGER.debug("发布分层词典版本：{}，加载词条：{}，屏蔽词条：{}", updated.getVersion(), added.size(), disabled.size());
+    }
+
+    @Override
+    public DictVersion snapshot() {
+        Layered layered = current;
+        if (layered.base != base.snapshot()) {
+            synchronized (this) {
+                layered = this.layered();
+            }
+        }
+        return layered.version;
+    }
+
+    @Override
+    public Hit matchInMainDict(char[] charArray) {
+        return this.snapshot().matchInMainDict(charArray);
+    }
+
+    @Override
+    public Hit matchInMainDict(char[] charArray, int begin, int length) {
+        return this.snapshot().matchInMainDict(charArray, begin, length);
+    }
+
+    @Override
+    public Hit matchInQuantifierDict(char[] charArray, int begin, int length) {
+        return this.snapshot().matchInQuantifierDict(charArray, begin, length);
+    }
+
+    @Override
+    public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+        return this.snapshot().matchWithHit(charArray, currentIndex, matchedHit);
+    }
+
+    @Override
+    public boolean isStopWord(char[] charArray) {
+        return this.snapshot().isStopWord(charArray);
+    }
+
+    @Override
+    public boolean isStopWord(char[] charArray, int begin, int length) {
+        return this.snapshot().isStopWord(charArray, begin, length);
+    }
+
+    /**
+     * 叠加后的主词典没有多模式匹配自动机，分词器按{@link Hit}逐字匹配.
+     */
+    @Override
+    public DictAutomaton getMainAutomaton() {
+        return null;
+    }
+
+    /**
+     * @return null，文件系统词典由基础词典监视.
+     */
+    @Override
+    public DictReloader getReloader() {
+        return null;
+    }
+
+    /**
+     * 基础词典由其他租户共享，不在此关闭.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * 基础词典发布了新版本时，将叠加层移到新版本上. 调用方持有当前对象的锁.
+     */
+    private Layered layered() {
+        Layered layered = current;
+        DictVersion baseVersion = base.snapshot();
+        if (layered.base != baseVersion) {
+            OverlayTrie mainTrie = ((OverlayTrie) layered.version.mainTrie).rebase(baseVersion.mainTrie);
+            layered = new Layered(baseVersion, this.compose(baseVersion, mainTrie));
+            current = layered;
+        }
+        return layered;
+    }
+
+    private DictVersion compose(DictVersion baseVersion, OverlayTrie mainTrie) {
+        return new DictVersion(++version, mainTrie, baseVersion.quantifierTrie, baseVersion.stopWordTrie);
+    }
+
+    private static final class Layered {
+
+        final DictVersion base;
+
+        final DictVersion version;
+
+        Layered(DictVersion base, DictVersion version) {
+            this.base = base;
+            this.version = version;
+        }
+    }
+}
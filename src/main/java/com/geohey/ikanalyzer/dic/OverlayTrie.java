@@ -0,0 +1,161 @@
+package com.geohey.ikanalyzer.dic;
+
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 分层的词典树: 共享的基础词典之上叠加一层小的词典树，记录加载和屏蔽的词条. <br/>
+ * 检索时同时匹配各层，词段成词当且仅当在加载层中成词，或在基础词典中成词且未被屏蔽；
+ * 任一层中是前缀即为前缀. 基础词典不复制，占用的内存只与叠加层的大小有关.
+ */
+final class OverlayTrie implements DictTrie {
+
+    private final DictTrie base;
+
+    /**
+     * 加载的词条.
+     */
+    private final DictSegment added;
+
+    /**
+     * 屏蔽的词条.
+     */
+    private final DictSegment disabled;
+
+    OverlayTrie(DictTrie base, DictSegment added, DictSegment disabled) {
+        this.base = base;
+        this.added = added;
+        this.disabled = disabled;
+    }
+
+    DictTrie getBase() {
+        return base;
+    }
+
+    @Override
+    public Hit match(char[] charArray) {
+        return this.match(charArray, 0, charArray.length);
+    }
+
+    @Override
+    public Hit match(char[] charArray, int begin, int length) {
+        Hit searchHit = new Hit();
+        searchHit.setBegin(begin);
+        searchHit.setLayerHits(this, new Hit[] {
+            base.match(charArray, begin, length),
+            added.match(charArray, begin, length),
+            disabled.match(charArray, begin, length)
+        });
+        return this.combine(searchHit);
+    }
+
+    /**
+     * 各层分别从上次的匹配结果继续匹配，已不是前缀的层不再匹配.
+     */
+    @Override
+    public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+        Hit[] layerHits = matchedHit.getLayerHits();
+        DictTrie[] layers = {base, added, disabled};
+        for (int i = 0; i < layers.length; i++) {
+            if (layerHits[i].isPrefix()) {
+                layers[i].matchWithHit(charArray, currentIndex, layerHits[i]);
+            } else {
+                layerHits[i].setUnmatch();
+            }
+        }
+        matchedHit.setEnd(currentIndex);
+        return this.combine(matchedHit);
+    }
+
+    @Override
+    public int matchChar(char c) {
+        int baseState = base.matchChar(c);
+        int addedState = added.matchChar(c);
+        int state = (baseState | addedState) & Hit.PREFIX;
+        if ((addedState & Hit.MATCH) != 0
+            || ((baseState & Hit.MATCH) != 0 && (disabled.matchChar(c) & Hit.MATCH) == 0)) {
+            state |= Hit.MATCH;
+        }
+        return state;
+    }
+
+    @Override
+    public boolean contains(char[] charArray, int begin, int length) {
+        return added.contains(charArray, begin, length)
+               || (base.contains(charArray, begin, length) && !disabled.contains(charArray, begin, length));
+    }
+
+    /**
+     * 只修改叠加层，基础词典不变.
+     */
+    @Override
+    public DictTrie update(Collection<char[]> added, Collection<char[]> disabled) {
+        // 同一词条同时出现时以屏蔽为准
+        Set<String> disabledWords = new HashSet<>();
+        for (char[] word : disabled) {
+            disabledWords.add(new String(word));
+        }
+        List<char[]> addedOnly = new ArrayList<>(added.size());
+        for (char[] word : added) {
+            if (!disabledWords.contains(new String(word))) {
+                addedOnly.add(word);
+            }
+        }
+
+        return new OverlayTrie(base,
+                               (DictSegment) this.added.update(addedOnly, disabled),
+                               (DictSegment) this.disabled.update(disabled, addedOnly));
+    }
+
+    /**
+     * 替换基础词典，叠加层不变.
+     */
+    OverlayTrie rebase(DictTrie base) {
+        return new OverlayTrie(base, added, disabled);
+    }
+
+    private Hit combine(Hit hit) {
+        Hit[] layerHits = hit.getLayerHits();
+        Hit baseHit = layerHits[0];
+        Hit addedHit = layerHits[1];
+        Hit disabledHit = layerHits[2];
+
+        hit.setUnmatch();
+        hit.setEnd(Math.max(baseHit.getEnd(), addedHit.getEnd()));
+        if (addedHit.isMatch() || (baseHit.isMatch() && !disabledHit.isMatch())) {
+            hit.setMatch();
+        }
+        if (baseHit.isPrefix() || addedHit.isPrefix()) {
+            hit.setPrefix();
+        }
+        return hit;
+    }
+}
@@ -25,7 +25,8 @@ package com.geohey.ikanalyzer.util;
  */
 
 /**
- * 字符集识别工具类. (原始名称CharacterUtil)
+ * 字符集识别工具类. (原始名称CharacterUtil) <br/>
+ * 类加载时为全部字符预先计算规范化结果和字符类型，识别时只需查表，不再逐字符查找Unicode区块.
  *
  * @author Liangyi Lin.
  */
@@ -41,12 +42,68 @@ public class CharacterUtils {
 
     public static final int CHAR_OTHER_CJK = 0X00000004;
 
+    /**
+     * 全部65536个字符的预计算结果: 低16位为规范化后的字符，16-23位为字符类型，24-31位为规范化后字符的类型.
+     */
+    private static final int[] CHAR_TABLE = new int[Character.MAX_VALUE + 1];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char regularized = computeRegularize((char) c);
+            CHAR_TABLE[c] = regularized
+                            | computeCharType((char) c) << 16
+                            | computeCharType(regularized) << 24;
+        }
+    }
+
     /**
      * 识别字符类型.
      * @param input
      * @return {@link CharacterUtils}定义的字符类型常量.
      */
     public static int identifyCharType(char input) {
+        return (CHAR_TABLE[input] >>> 16) & 0xFF;
+    }
+
+    /**
+     * 规范化字符: 全角转半角，大写转小写.
+     * @param input
+     * @return 规范化后的字符.
+     */
+    public static char regularize(char input) {
+        return (char) CHAR_TABLE[input];
+    }
+
+    /**
+     * 规范化字符数组中的一个字符并识别其类型，一次查表完成，
+     * 等价于先{@link #regularize(char)}再{@link #identifyCharType(char)}.
+     * @param chars
+     * @param index
+     * @return 规范化后字符的类型.
+     */
+    public static int regularize(char[] chars, int index) {
+        int entry = CHAR_TABLE[chars[index]];
+        chars[index] = (char) entry;
+        return entry >>> 24;
+    }
+
+    /**
+     * 批量规范化字符数组中的一段字符，并将规范化后字符的类型写入types的对应位置.
+     * @param chars
+     * @param types
+     * @param begin 起始位置(包含).
+     * @param end 结束位置(不包含).
+     */
+    public static void regularize(char[] chars, byte[] types, int begin, int end) {
+        int[] table = CHAR_TABLE;
+        for (int i = begin; i < end; i++) {
+            int entry = table[chars[i]];
+            chars[i] = (char) entry;
+            types[i] = (byte) (entry >>> 24);
+        }
+    }
+
+    private static int computeCharType(char input) {
         if (input >= '0' && input <= '9') {
             return CHAR_ARABIC;
         } else if ((input >= 'a' && input <= 'z') ||
@@ -80,7 +137,7 @@ public class CharacterUtils {
         return CHAR_USELESS;
     }
 
-    public static char regularize(char input) {
+    private static char computeRegularize(char input) {
 
         if (input == 12288) {
             input = (char) 32;
@@ -24,9 +24,13 @@ package com.geohey.ikanalyzer.util;
  *
  */
 
+import com.geohey.ikanalyzer.cfg.Configuration;
+import com.geohey.ikanalyzer.cfg.DefaultConfig;
 import com.geohey.ikanalyzer.core.IKSegmenter;
 import com.geohey.ikanalyzer.core.Lexeme;
+import com.geohey.ikanalyzer.core.SegmenterPool;
 import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.dic.IDictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,13 +48,34 @@ public final class SegmenterUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SegmenterUtils.class);
 
+    /**
+     * 默认配置的分词器池，首次使用时创建.
+     */
+    private static final class DefaultPool {
+        static final SegmenterPool INSTANCE = new SegmenterPool(DefaultConfig.getSingleton());
+    }
+
     private SegmenterUtils() {
     }
 
+    /**
+     * 使用默认配置和词典分词，复用当前线程的分词器.
+     */
     public static List<String> splitWordsToList(String text, boolean useSmart) {
+        SegmenterPool pool = DefaultPool.INSTANCE;
+        IKSegmenter ik = pool.acquire(new StringReader(text), useSmart);
+        try {
+            return splitWords(ik);
+        } finally {
+            pool.release(ik);
+        }
+    }
 
-        StringReader reader = new StringReader(text);
-        IKSegmenter ik = new IKSegmenter(reader, useSmart);
+    public static List<String> splitWordsToList(String text, Configuration cfg, IDictionary dictionary) {
+        return splitWords(new IKSegmenter(new StringReader(text), cfg, dictionary));
+    }
+
+    private static List<String> splitWords(IKSegmenter ik) {
         try {
             List<String> list = new ArrayList<>();
 
@@ -68,6 +93,10 @@ public final class SegmenterUtils {
     }
 
     public static void disableWords(InputStream is) {
+        disableWords(Dictionary.getSingleton(), is);
+    }
+
+    public static void disableWords(IDictionary dictionary, InputStream is) {
         if (is != null) {
 
             Collection<String> disableWords = new ArrayList<>();
@@ -92,7 +121,7 @@ public final class SegmenterUtils {
                 }
             }
 
-            Dictionary.getSingleton().disableWords(disableWords);
+            dictionary.disableWords(disableWords);
         }
     }
 
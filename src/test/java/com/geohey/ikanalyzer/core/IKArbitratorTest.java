@@ -0,0 +1,102 @@
+package com.geohey.ikanalyzer.core;
+
+import com.geohey.ikanalyzer.cfg.AbstractConfig;
+import com.geohey.ikanalyzer.cfg.Configuration;
+import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.util.SegmenterUtils;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+public class IKArbitratorTest {
+
+    /**
+     * 歧义裁决结果与原回溯算法一致.
+     */
+    @Test
+    public void judge() {
+
+        assertSmart("结婚的和尚未结婚的都来了", "结婚", "和尚", "结婚", "都", "来了");
+        assertSmart("乒乓球拍卖完了", "乒乓球", "拍卖", "完了");
+        assertSmart("南京市长江大桥", "南京市", "长江大桥");
+        assertSmart("研究生命起源是一项长期的科学工作", "研究", "生命", "源", "一项", "期", "学", "工", "作");
+    }
+
+    private static void assertSmart(String text, String... expected) {
+        List<String> list = SegmenterUtils.splitWordsToList(text, true);
+        assert Arrays.asList(expected).equals(list) : list;
+    }
+
+    /**
+     * 超过限制时采用正向贪心的切分结果，超出时间预算时只输出已完成的分词结果.
+     */
+    @Test
+    public void guards() throws IOException {
+
+        Configuration cfg = new AbstractConfig() {
+            @Override
+            public int getMaxCrossPathLength() {
+                return 4;
+            }
+        };
+        cfg.setUseSmart(true);
+        long fired = LatencyGuard.CROSS_PATH_LENGTH.getCount();
+        List<String> list = SegmenterUtils.splitWordsToList("结婚的和尚未结婚的都来了", cfg, Dictionary.initial(cfg));
+        assert LatencyGuard.CROSS_PATH_LENGTH.getCount() > fired;
+        assert Arrays.asList("结婚", "和尚", "未结", "来了").equals(list) : list;
+
+        cfg = new AbstractConfig() {
+            @Override
+            public long getTimeBudgetMillis() {
+                return 1;
+            }
+        };
+        StringBuilder text = new StringBuilder();
+        for (String sentence : Collections.nCopies(20000, "研究生命起源")) {
+            text.append(sentence);
+        }
+        fired = LatencyGuard.TIME_BUDGET.getCount();
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(text.toString()), cfg);
+        int end = 0;
+        for (Lexeme lexeme = segmenter.next(); lexeme != null; lexeme = segmenter.next()) {
+            end = lexeme.getEndPosition();
+        }
+        assert LatencyGuard.TIME_BUDGET.getCount() == fired + 1;
+        assert end > 0 && end < text.length() : end;
+        // 超出预算后不再从输入的剩余部分继续分词
+        assert segmenter.next() == null;
+        assert segmenter.next() == null;
+
+        // 重新分词时重新计时
+        segmenter.reset(new StringReader("研究生命起源"));
+        assert segmenter.next() != null;
+    }
+}
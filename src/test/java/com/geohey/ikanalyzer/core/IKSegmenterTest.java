@@ -0,0 +1,266 @@
+package com.geohey.ikanalyzer.core;
+
+import com.geohey.ikanalyzer.cfg.DefaultConfig;
+import com.geohey.ikanalyzer.dic.Dictionary;
+import com.geohey.ikanalyzer.dic.OverlayDictionary;
+import com.geohey.ikanalyzer.util.SegmenterUtils;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+public class IKSegmenterTest {
+
+    /**
+     * 不经过Reader分词的位置与next()一致，跨越多段缓冲区时也一致，且不修改输入数组.
+     */
+    @Test
+    public void split() throws IOException {
+
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), false);
+        assert segmenter.split("").length == 0;
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 10000) {
+            text.append("ＩＫ Analyzer 3.0版，结婚的和尚未结婚的都来了，二〇一二年十二个月。");
+        }
+        int[] offsets = segmenter.split(text);
+
+        segmenter.reset(new StringReader(text.toString()));
+        int count = 0;
+        for (Lexeme lexeme = segmenter.next(); lexeme != null; lexeme = segmenter.next()) {
+            assert offsets[count++] == lexeme.getBeginPosition();
+            assert offsets[count++] == lexeme.getLength();
+        }
+        assert count == offsets.length;
+
+        char[] chars = ("前缀" + text + "后缀").toCharArray();
+        char[] copy = chars.clone();
+        int[] slice = segmenter.split(chars, 2, text.length());
+        assert Arrays.equals(chars, copy);
+        for (int i = 0; i < slice.length; i += 2) {
+            slice[i] -= 2;
+        }
+        assert Arrays.equals(offsets, slice);
+    }
+
+    /**
+     * 分词器池按线程复用分词器，智能分词设置按实例保存，不修改默认配置.
+     */
+    @Test
+    public void pool() {
+
+        boolean useSmart = DefaultConfig.getSingleton().useSmart();
+        String text = "二〇一二年十二个月";
+        List<String> smart = SegmenterUtils.splitWordsToList(text, true);
+        List<String> maxWord = SegmenterUtils.splitWordsToList(text, false);
+        assert !smart.equals(maxWord);
+        assert smart.equals(SegmenterUtils.splitWordsToList(text, true));
+        assert maxWord.equals(SegmenterUtils.splitWordsToList(text, false));
+        assert DefaultConfig.getSingleton().useSmart() == useSmart;
+
+        SegmenterPool pool = new SegmenterPool(DefaultConfig.getSingleton());
+        IKSegmenter segmenter = pool.acquire(new StringReader(text), true);
+        IKSegmenter nested = pool.acquire(new StringReader(text), true);
+        assert nested != segmenter;
+        pool.release(segmenter);
+        assert pool.acquire(new StringReader(text), true) == segmenter;
+        assert pool.acquire(new StringReader(text), false) != segmenter;
+    }
+
+    /**
+     * 分词器在读取时被另一个线程使用，检查包装立即抛出异常，不阻塞.
+     */
+    @Test
+    public void checked() throws Exception {
+
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final CheckedSegmenter segmenter = new CheckedSegmenter(new IKSegmenter(new Reader() {
+            private Reader text = new StringReader("结婚的和尚未结婚的都来了");
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                reading.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return text.read(cbuf, off, len);
+            }
+
+            @Override
+            public void close() {
+            }
+        }, false));
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (segmenter.next() != null) {
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        reader.start();
+        reading.await();
+        try {
+            segmenter.split("结婚");
+            assert false;
+        } catch (ConcurrentModificationException e) {
+            // 预期的误用
+        } finally {
+            done.countDown();
+        }
+        reader.join();
+        assert segmenter.split("结婚").length == 2;
+    }
+
+    /**
+     * 批量分词的结果按输入顺序排列，与逐个分词一致.
+     */
+    @Test
+    public void batch() throws InterruptedException {
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            texts.add("北京运城印刷机械制造有限公司第" + i + "分公司");
+        }
+        ForkJoinPool executor = new ForkJoinPool(3);
+        try {
+            BatchSegmenter segmenter = new BatchSegmenter(new SegmenterPool(DefaultConfig.getSingleton()), executor);
+            BatchResult result = segmenter.segment(texts, true);
+            assert result.getDocuments() == texts.size();
+            long lexemes = 0;
+            for (int i = 0; i < texts.size(); i++) {
+                List<String> words = SegmenterUtils.splitWordsToList(texts.get(i), true);
+                assert words.equals(result.getWords().get(i)) : i;
+                lexemes += words.size();
+            }
+            assert result.getLexemes() == lexemes;
+            assert segmenter.segment(new ArrayList<String>(), false).getDocuments() == 0;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 长文本在缓冲区切换点分段并行分词，结果与整段分词一致.
+     */
+    @Test
+    public void parallel() throws InterruptedException {
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 50000) {
+            text.append("ＩＫ Analyzer 3.0版，结婚的和尚未结婚的都来了，二〇一二年十二个月");
+            text.append("linliangyi2005@gmail.com中华人民共和国北京大学生活");
+        }
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(""), true);
+        int[] serial = segmenter.split(text);
+
+        List<Integer> parts = new ArrayList<>();
+        int begin = 0;
+        for (int stop = segmenter.nextBufferStart(text, 0, text.length()); begin < text.length();
+             stop = segmenter.nextBufferStart(text, stop, text.length())) {
+            int[] part = segmenter.split(text, begin, text.length(), stop, begin > 0);
+            assert part != null : begin;
+            for (int offset : part) {
+                parts.add(offset);
+            }
+            begin = stop;
+        }
+        assert parts.size() == serial.length;
+        for (int i = 0; i < serial.length; i++) {
+            assert parts.get(i) == serial[i] : i;
+        }
+
+        ForkJoinPool executor = new ForkJoinPool(3);
+        try {
+            BatchSegmenter batch = new BatchSegmenter(new SegmenterPool(DefaultConfig.getSingleton()), executor, 3, 4096);
+            assert Arrays.equals(serial, batch.split(text, true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 迭代器按需取出的词元与next()一致.
+     */
+    @Test
+    public void iterator() throws IOException {
+
+        String text = "IK Analyzer 3.0版，结婚的和尚未结婚的都来了";
+        IKSegmenter segmenter = new IKSegmenter(new StringReader(text), false);
+        List<String> words = new ArrayList<>();
+        Iterator<Lexeme> iterator = segmenter.iterator();
+        while (iterator.hasNext()) {
+            words.add(iterator.next().getLexemeText());
+        }
+        assert !iterator.hasNext();
+        assert !iterator.hasNext();
+        assert !segmenter.iterator().hasNext();
+        assert words.equals(SegmenterUtils.splitWordsToList(text, false)) : words;
+    }
+
+    /**
+     * 重复文本命中缓存，词典更新后缓存失效.
+     */
+    @Test
+    public void cache() {
+
+        OverlayDictionary dictionary = new OverlayDictionary(Dictionary.getSingleton());
+        SegmentCache cache = new SegmentCache(new SegmenterPool(DefaultConfig.getSingleton(), dictionary), 2, 1 << 20);
+        String text = "结婚的和尚未结婚的";
+        List<String> words = cache.splitWords(text, true);
+        assert words.equals(SegmenterUtils.splitWordsToList(text, true)) : words;
+        assert cache.splitWords(text, true) == words;
+        assert cache.splitWords(text, false) != words;
+        assert cache.getHits() == 1 && cache.getMisses() == 2;
+
+        cache.splitWords("中华人民共和国", true);
+        assert cache.size() == 2 && cache.getEvictions() == 1;
+
+        dictionary.addWords(Collections.singletonList("尚未结婚"));
+        List<String> updated = cache.splitWords(text, true);
+        assert updated.contains("尚未结婚") : updated;
+        assert cache.getInvalidations() == 1 && cache.size() == 1;
+    }
+}
@@ -1,9 +1,24 @@
 package com.geohey.ikanalyzer.dic;
 
+import com.geohey.ikanalyzer.cfg.AbstractConfig;
 import com.geohey.ikanalyzer.cfg.Configuration;
 import com.geohey.ikanalyzer.cfg.DefaultConfig;
+import com.geohey.ikanalyzer.util.SegmenterUtils;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 /**
  *
  * Licensed to the Apache Software Foundation (ASF) under one or more
@@ -53,4 +68,343 @@ public class DictionaryTest {
         boolean is = dict.isStopWord("a".toCharArray());
         assert is;
     }
+
+    @Test
+    public void snapshot() throws IOException {
+
+        Configuration cfg = DefaultConfig.getSingleton();
+        File file = File.createTempFile("ikanalyzer", ".snapshot");
+        file.deleteOnExit();
+        DictionaryCompiler.compile(cfg, file);
+
+        DictSnapshot snapshot = DictSnapshot.read(file.getPath(), getClass().getClassLoader());
+        assert snapshot.fingerprint == DictSnapshot.fingerprint(cfg, getClass().getClassLoader());
+        assert snapshot.mainTrie.match("北京".toCharArray()).isMatch();
+        assert snapshot.quantifierTrie.match("个".toCharArray()).isMatch();
+        assert snapshot.stopWordTrie.match("a".toCharArray()).isMatch();
+
+        DictSnapshot mapped = DictSnapshot.map(file.getPath());
+        assert mapped.fingerprint == snapshot.fingerprint;
+        assert mapped.mainTrie.capacity() == snapshot.mainTrie.capacity();
+        assert mapped.mainTrie.match("北京".toCharArray()).isMatch();
+        assert mapped.quantifierTrie.match("个".toCharArray()).isMatch();
+        assert mapped.stopWordTrie.contains("a".toCharArray(), 0, 1);
+    }
+
+    @Test
+    public void truncatedSnapshot() throws IOException {
+
+        File file = File.createTempFile("ikanalyzer", ".snapshot");
+        file.deleteOnExit();
+        DictionaryCompiler.compile(DefaultConfig.getSingleton(), file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        // 截断或长度字段损坏的快照读取失败，词典回退到文本词典
+        for (int size : new int[] {20, 1000, bytes.length / 2, bytes.length - 1}) {
+            Files.write(file.toPath(), Arrays.copyOf(bytes, size));
+            assertUnreadable(file, Configuration.DICT_ENGINE_DOUBLE_ARRAY);
+            assertUnreadable(file, Configuration.DICT_ENGINE_MAPPED);
+        }
+        byte[] corrupt = bytes.clone();
+        corrupt[16 + 3] = (byte) 0x80;
+        Files.write(file.toPath(), corrupt);
+        assertUnreadable(file, Configuration.DICT_ENGINE_DOUBLE_ARRAY);
+        assertUnreadable(file, Configuration.DICT_ENGINE_MAPPED);
+    }
+
+    private void assertUnreadable(final File file, final String engine) {
+        try {
+            if (Configuration.DICT_ENGINE_MAPPED.equals(engine)) {
+                DictSnapshot.map(file.getPath());
+            } else {
+                DictSnapshot.read(file.getPath(), getClass().getClassLoader());
+            }
+            assert false : file.length();
+        } catch (IOException e) {
+            // 预期的异常
+        }
+
+        Configuration cfg = new AbstractConfig() {
+            @Override
+            public String getDictEngine() {
+                return engine;
+            }
+
+            @Override
+            public String getDictSnapshot() {
+                return file.getPath();
+            }
+        };
+        assert new Dictionary(cfg, true).matchInMainDict("北京".toCharArray()).isMatch();
+    }
+
+    @Test
+    public void automaton() {
+
+        Configuration cfg = DefaultConfig.getSingleton();
+        Dictionary.initial(cfg);
+        IDictionary dict = Dictionary.getSingleton();
+
+        DictAutomaton automaton = dict.getMainAutomaton();
+        if (automaton == null) {
+            return;
+        }
+
+        // 自动机找出的词与逐段检索主词典的结果一致
+        char[] text = "中华人民共和国成立了，北京大学生前来应聘".toCharArray();
+        int state = DictAutomaton.ROOT;
+        for (int end = 0; end < text.length; end++) {
+            state = automaton.next(state, text[end]);
+
+            StringBuilder expected = new StringBuilder();
+            for (int begin = 0; begin <= end; begin++) {
+                if (dict.matchInMainDict(text, begin, end - begin + 1).isMatch()) {
+                    expected.append(begin).append(',');
+                }
+            }
+
+            StringBuilder actual = new StringBuilder();
+            for (int word = automaton.firstWord(state); word != DictAutomaton.ROOT; word = automaton.nextWord(word)) {
+                actual.append(end - automaton.length(word) + 1).append(',');
+            }
+
+            assert expected.toString().equals(actual.toString()) : end + ": " + expected + " != " + actual;
+        }
+    }
+
+    @Test
+    public void version() {
+
+        Configuration cfg = DefaultConfig.getSingleton();
+        IDictionary dict = new Dictionary(cfg, false);
+        char[] word = "鬲氐夊".toCharArray();
+
+        DictVersion before = dict.snapshot();
+        dict.updateWords(Arrays.asList("鬲氐夊", "北京"), Collections.singletonList("北京"));
+        DictVersion after = dict.snapshot();
+
+        // 已获取的版本不受更新影响
+        assert after.getVersion() == before.getVersion() + 1;
+        assert !before.matchInMainDict(word).isMatch();
+        assert before.matchInMainDict("北京".toCharArray()).isMatch();
+        assert after.matchInMainDict(word).isMatch();
+        assert !after.matchInMainDict("北京".toCharArray()).isMatch();
+
+        dict.disableWords(Collections.singletonList("鬲氐夊"));
+        assert after.matchInMainDict(word).isMatch();
+        assert !dict.matchInMainDict(word).isMatch();
+
+        // 对象树引擎只复制修改路径，原树不变
+        DictSegment root = new DictSegment((char) 0);
+        root.fillSegment("中国".toCharArray());
+        root.fillSegment("中华".toCharArray());
+        DictTrie updated = root.update(Collections.singletonList("中国人".toCharArray()),
+                                       Collections.singletonList("中华".toCharArray()));
+        assert !root.match("中国人".toCharArray()).isMatch();
+        assert root.match("中华".toCharArray()).isMatch();
+        assert updated.match("中国人".toCharArray()).isMatch();
+        assert updated.match("中国".toCharArray()).isMatch();
+        assert !updated.match("中华".toCharArray()).isMatch();
+    }
+
+    @Test
+    public void reload() throws Exception {
+
+        Path dir = Files.createTempDirectory("ikanalyzer");
+        final Path ext = dir.resolve("ext.dic");
+        Files.write(ext, Collections.singletonList("鬲氐夊"), Charset.forName("UTF-8"));
+
+        Configuration cfg = new AbstractConfig() {
+            @Override
+            public List<String> getExtDictionaryFiles() {
+                return Collections.singletonList(ext.toString());
+            }
+
+            @Override
+            public String getDictEngine() {
+                return DICT_ENGINE_TREE;
+            }
+        };
+        AbstractDictionary dict = new Dictionary(cfg, false);
+        dict.addWords(Collections.singletonList("夊氐鬲"));
+        dict.addWords(Collections.singletonList("氐鬲夊"));
+        dict.disableWords(Collections.singletonList("氐鬲夊"));
+        assert dict.matchInMainDict("鬲氐夊".toCharArray()).isMatch();
+
+        final BlockingQueue<DictReloadEvent> events = new LinkedBlockingQueue<>();
+        DictReloader reloader = new DictReloader(dict, cfg);
+        reloader.addListener(new DictReloadListener() {
+            @Override
+            public void onReload(Collection<Path> files, DictReloadEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void onReloadFailure(Collection<Path> files, Exception e) {
+            }
+        });
+        reloader.start();
+        try {
+            Files.write(ext, Collections.singletonList("氐夊鬲"), Charset.forName("UTF-8"));
+
+            DictReloadEvent event = events.poll(30, TimeUnit.SECONDS);
+            assert event != null;
+            assert event.isMainDict() && !event.isStopWordDict();
+            assert event.getVersion() == dict.snapshot().getVersion();
+
+            // 文件中删除的词条失效，新增的词条生效，通过接口添加的词条保留
+            assert !dict.matchInMainDict("鬲氐夊".toCharArray()).isMatch();
+            assert dict.matchInMainDict("氐夊鬲".toCharArray()).isMatch();
+            assert dict.matchInMainDict("夊氐鬲".toCharArray()).isMatch();
+            assert !dict.matchInMainDict("氐鬲夊".toCharArray()).isMatch();
+            assert dict.matchInMainDict("北京".toCharArray()).isMatch();
+        } finally {
+            reloader.close();
+            Files.delete(ext);
+            Files.delete(dir);
+        }
+
+        // 词典文件读取失败时保留当前版本
+        long version = dict.snapshot().getVersion();
+        try {
+            dict.reload(true, false);
+            assert false;
+        } catch (IOException e) {
+            // 预期的异常
+        }
+        assert dict.snapshot().getVersion() == version;
+        assert dict.matchInMainDict("氐夊鬲".toCharArray()).isMatch();
+    }
+
+    @Test
+    public void parallelLoad() throws IOException {
+
+        byte[] bytes = Files.readAllBytes(new File(getClass().getClassLoader().getResource("core-main.dic").getFile()).toPath());
+        List<char[]> words = DictLoader.parse(bytes);
+
+        DictSegment sequential = new DictSegment((char) 0);
+        for (char[] word : words) {
+            sequential.fillSegment(word);
+        }
+        DictSegment parallel = new DictSegment((char) 0);
+        DictLoader.fill(parallel, words);
+        DoubleArrayTrie trie = DoubleArrayTrie.build(parallel);
+
+        // 并行加载和分片编译的结果与逐词加载一致
+        for (char[] word : words) {
+            for (int length = 1; length <= word.length; length++) {
+                Hit expected = sequential.match(word, 0, length);
+                for (Hit hit : new Hit[] {parallel.match(word, 0, length), trie.match(word, 0, length)}) {
+                    assert hit.isMatch() == expected.isMatch() && hit.isPrefix() == expected.isPrefix()
+                        : new String(word, 0, length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void open() throws IOException {
+
+        Path dir = Files.createTempDirectory("ikanalyzer");
+        final Path ext = dir.resolve("ext.dic");
+        Files.write(ext, Collections.singletonList("鬲氐夊"), Charset.forName("UTF-8"));
+
+        // 不使用扩展词典，避免与默认配置的单例共享主词典
+        Configuration base = new AbstractConfig() {
+            @Override
+            public List<String> getExtDictionarys() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getDictEngine() {
+                return DICT_ENGINE_TREE;
+            }
+        };
+        Configuration tenant = new AbstractConfig() {
+            @Override
+            public List<String> getExtDictionaryFiles() {
+                return Collections.singletonList(ext.toString());
+            }
+
+            @Override
+            public String getDictEngine() {
+                return DICT_ENGINE_TREE;
+            }
+        };
+
+        IDictionary first = Dictionary.open(base);
+        IDictionary second = Dictionary.open(base);
+        IDictionary third = Dictionary.open(tenant);
+        DictTrie shared = second.snapshot().mainTrie;
+        try {
+            // 词典文件相同的实例共享检索结构，扩展词典不同时只共享量词和停止词词典
+            assert first.snapshot().mainTrie == second.snapshot().mainTrie;
+            assert first.snapshot().mainTrie != third.snapshot().mainTrie;
+            assert first.snapshot().quantifierTrie == third.snapshot().quantifierTrie;
+            assert first.snapshot().stopWordTrie == third.snapshot().stopWordTrie;
+
+            // 各实例的修改互不影响
+            first.addWords(Collections.singletonList("夊氐鬲"));
+            assert first.matchInMainDict("夊氐鬲".toCharArray()).isMatch();
+            assert !second.matchInMainDict("夊氐鬲".toCharArray()).isMatch();
+
+            assert SegmenterUtils.splitWordsToList("鬲氐夊北京", tenant, third).contains("鬲氐夊");
+            assert !SegmenterUtils.splitWordsToList("鬲氐夊北京", base, second).contains("鬲氐夊");
+        } finally {
+            first.close();
+            second.close();
+            third.close();
+            Files.delete(ext);
+            Files.delete(dir);
+        }
+
+        // 全部实例关闭后不再共享
+        IDictionary reopened = Dictionary.open(base);
+        try {
+            assert reopened.snapshot().mainTrie != shared;
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void overlay() {
+
+        Configuration cfg = DefaultConfig.getSingleton();
+        IDictionary base = Dictionary.open(cfg);
+        OverlayDictionary tenant = new OverlayDictionary(base);
+        OverlayDictionary other = new OverlayDictionary(base);
+        try {
+            tenant.updateWords(Arrays.asList("北京大学城", "鬲氐夊"), Collections.singletonList("北京"));
+
+            assert tenant.matchInMainDict("鬲氐夊".toCharArray()).isMatch();
+            assert !tenant.matchInMainDict("北京".toCharArray()).isMatch();
+            assert tenant.matchInMainDict("北京".toCharArray()).isPrefix();
+            assert base.matchInMainDict("北京".toCharArray()).isMatch();
+            assert !other.matchInMainDict("鬲氐夊".toCharArray()).isMatch();
+
+            // 逐字继续匹配时跨层: 基础词典的前缀延伸到叠加层的词条
+            char[] text = "北京大学城".toCharArray();
+            Hit hit = tenant.matchInMainDict(text, 0, 1);
+            for (int i = 1; i < text.length; i++) {
+                assert hit.isPrefix();
+                hit = tenant.matchWithHit(text, i, hit);
+                assert hit.isMatch() == tenant.matchInMainDict(text, 0, i + 1).isMatch();
+            }
+            assert hit.isMatch();
+
+            // 基础词典更新后叠加层依然生效
+            base.addWords(Collections.singletonList("夊氐鬲"));
+            assert tenant.matchInMainDict("夊氐鬲".toCharArray()).isMatch();
+            assert !tenant.matchInMainDict("北京".toCharArray()).isMatch();
+
+            assert SegmenterUtils.splitWordsToList("我爱北京大学城", cfg, tenant).contains("北京大学城");
+            assert !SegmenterUtils.splitWordsToList("我爱北京大学城", cfg, other).contains("北京大学城");
+        } finally {
+            tenant.close();
+            other.close();
+            base.close();
+        }
+    }
 }
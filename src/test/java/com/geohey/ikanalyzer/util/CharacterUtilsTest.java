@@ -0,0 +1,83 @@
+package com.geohey.ikanalyzer.util;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * NOTE: 前源代码由林良益(linliangyi2005@gmail.com)提供
+ *
+ * 当前版本由GeoHey(https://geohey.com)fork，维护和更新.
+ * provided by GeoHey now.
+ *
+ */
+
+public class CharacterUtilsTest {
+
+    /**
+     * 查表结果与原逐字符计算的结果完全一致.
+     */
+    @Test
+    public void table() {
+
+        char[] chars = new char[1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char input = (char) c;
+            assert CharacterUtils.regularize(input) == regularize(input) : c;
+            assert CharacterUtils.identifyCharType(input) == identifyCharType(input) : c;
+
+            chars[0] = input;
+            assert CharacterUtils.regularize(chars, 0) == identifyCharType(regularize(input)) : c;
+            assert chars[0] == regularize(input) : c;
+        }
+    }
+
+    private static int identifyCharType(char input) {
+        if (input >= '0' && input <= '9') {
+            return CharacterUtils.CHAR_ARABIC;
+        } else if ((input >= 'a' && input <= 'z') || (input >= 'A' && input <= 'Z')) {
+            return CharacterUtils.CHAR_ENGLISH;
+        }
+
+        Character.UnicodeBlock ub = Character.UnicodeBlock.of(input);
+        if (ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+            || ub == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+            || ub == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A) {
+            return CharacterUtils.CHAR_CHINESE;
+        } else if (ub == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                   || ub == Character.UnicodeBlock.HANGUL_SYLLABLES
+                   || ub == Character.UnicodeBlock.HANGUL_JAMO
+                   || ub == Character.UnicodeBlock.HANGUL_COMPATIBILITY_JAMO
+                   || ub == Character.UnicodeBlock.HIRAGANA
+                   || ub == Character.UnicodeBlock.KATAKANA
+                   || ub == Character.UnicodeBlock.KATAKANA_PHONETIC_EXTENSIONS) {
+            return CharacterUtils.CHAR_OTHER_CJK;
+        }
+        return CharacterUtils.CHAR_USELESS;
+    }
+
+    private static char regularize(char input) {
+        if (input == 12288) {
+            return (char) 32;
+        } else if (input > 65280 && input < 65375) {
+            return (char) (input - 65248);
+        } else if (input >= 'A' && input <= 'Z') {
+            return (char) (input + 32);
+        }
+        return input;
+    }
+}